@@ -39,5 +39,6 @@ dependencies {
     implementation (libs.androidx.annotation)
     implementation(libs.androidx.appcompat)
     implementation (files("libs/swuploadservice-4.0.3-r141282.aar"))
+    testImplementation(libs.junit)
 
 }
\ No newline at end of file
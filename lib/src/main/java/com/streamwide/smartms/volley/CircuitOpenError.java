@@ -0,0 +1,43 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 15:31:19 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 15:31:19 +0200
+ */
+
+package com.streamwide.smartms.volley;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Indicates that a request failed fast, without being sent, because the
+ * circuit breaker of its host is open after repeated failures.
+ */
+@SuppressWarnings("serial")
+public class CircuitOpenError extends NoConnectionError {
+
+    private final String mHost;
+
+    public CircuitOpenError(@Nullable String host)
+    {
+        super();
+        mHost = host;
+    }
+
+    /**
+     * Returns the host whose circuit breaker is open.
+     */
+    @Nullable
+    public String getHost()
+    {
+        return mHost;
+    }
+}
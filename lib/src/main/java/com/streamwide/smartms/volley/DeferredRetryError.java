@@ -0,0 +1,64 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 15:08:44 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 15:08:44 +0200
+ */
+
+package com.streamwide.smartms.volley;
+
+import androidx.annotation.NonNull;
+
+import com.streamwide.smartms.volley.api.VolleyError;
+
+/**
+ * Thrown by a {@link Network} when a request is to be retried after a delay.
+ * The dispatcher puts the request back in the queue once the delay is over,
+ * instead of waiting on its thread; this error is never delivered.
+ */
+@SuppressWarnings("serial")
+public class DeferredRetryError extends VolleyError {
+
+    private final long mRetryDelayMs;
+
+    /**
+     * Creates an error deferring a request before its attempt, e.g. while its
+     * host asked clients to back off.
+     *
+     * @param retryDelayMs
+     *            The time to wait before the attempt, in milliseconds
+     */
+    public DeferredRetryError(long retryDelayMs)
+    {
+        super();
+        mRetryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * @param reason
+     *            The error of the attempt being retried
+     * @param retryDelayMs
+     *            The time to wait before the next attempt, in milliseconds
+     */
+    public DeferredRetryError(@NonNull VolleyError reason, long retryDelayMs)
+    {
+        super(reason);
+        mRetryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * Returns the time to wait before the next attempt, in milliseconds.
+     */
+    public long getRetryDelayMs()
+    {
+        return mRetryDelayMs;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 11:02:17 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 11:02:17 +0200
+ */
+
+package com.streamwide.smartms.volley;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Queue depth and latency counters of the dispatch stages of a
+ * {@link RequestQueue}: the network stage, where requests wait for a
+ * {@link NetworkDispatcher} and are performed, and the parse stage, where
+ * network responses wait for a parse thread and are parsed.
+ */
+public class DispatchStats {
+
+    /**
+     * Counters of a single stage. Waiting time is measured from the moment an
+     * item is queued for the stage to the moment a thread picks it up; running
+     * time from that moment to the end of the stage.
+     */
+    public static class Stage {
+
+        private int mDepth;
+        private int mMaxDepth;
+        private long mCount;
+        private long mTotalWaitMs;
+        private long mMaxWaitMs;
+        private long mTotalRunMs;
+        private long mMaxRunMs;
+
+        synchronized void onQueued()
+        {
+            mDepth++;
+            mMaxDepth = Math.max(mMaxDepth, mDepth);
+        }
+
+        synchronized void onStarted(long waitMs)
+        {
+            mDepth = Math.max(0, mDepth - 1);
+            mCount++;
+            mTotalWaitMs += waitMs;
+            mMaxWaitMs = Math.max(mMaxWaitMs, waitMs);
+        }
+
+        synchronized void onFinished(long runMs)
+        {
+            mTotalRunMs += runMs;
+            mMaxRunMs = Math.max(mMaxRunMs, runMs);
+        }
+
+        /** Returns the number of items currently waiting for this stage. */
+        public synchronized int getDepth()
+        {
+            return mDepth;
+        }
+
+        /** Returns the highest number of items that waited for this stage. */
+        public synchronized int getMaxDepth()
+        {
+            return mMaxDepth;
+        }
+
+        /** Returns the number of items picked up by this stage. */
+        public synchronized long getCount()
+        {
+            return mCount;
+        }
+
+        /** Returns the average waiting time before this stage, in milliseconds. */
+        public synchronized long getAverageWaitMs()
+        {
+            return mCount == 0 ? 0 : mTotalWaitMs / mCount;
+        }
+
+        /** Returns the longest waiting time before this stage, in milliseconds. */
+        public synchronized long getMaxWaitMs()
+        {
+            return mMaxWaitMs;
+        }
+
+        /** Returns the average running time of this stage, in milliseconds. */
+        public synchronized long getAverageRunMs()
+        {
+            return mCount == 0 ? 0 : mTotalRunMs / mCount;
+        }
+
+        /** Returns the longest running time of this stage, in milliseconds. */
+        public synchronized long getMaxRunMs()
+        {
+            return mMaxRunMs;
+        }
+
+        @Override
+        public synchronized String toString()
+        {
+            return "depth=" + mDepth + " maxDepth=" + mMaxDepth + " count=" + mCount + " avgWaitMs="
+                + getAverageWaitMs() + " maxWaitMs=" + mMaxWaitMs + " avgRunMs=" + getAverageRunMs() + " maxRunMs="
+                + mMaxRunMs;
+        }
+    }
+
+    private final Stage mNetworkStage = new Stage();
+
+    private final Stage mParseStage = new Stage();
+
+    /** Returns the counters of the network stage. */
+    @NonNull
+    public Stage getNetworkStage()
+    {
+        return mNetworkStage;
+    }
+
+    /** Returns the counters of the parse stage. */
+    @NonNull
+    public Stage getParseStage()
+    {
+        return mParseStage;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "network[" + mNetworkStage + "] parse[" + mParseStage + "]";
+    }
+}
@@ -116,7 +116,9 @@ public class ExecutorDelivery implements ResponseDelivery {
             }
 
             // Deliver a normal response or error, depending.
-            if (mResponse.isSuccess()) {
+            if (mResponse.isSuccess() && mResponse.isIntermediate()) {
+                mRequest.deliverIntermediateResponse(mResponse.result);
+            } else if (mResponse.isSuccess()) {
                 mRequest.deliverResponse(mResponse.result);
             } else {
                 mRequest.deliverError(mResponse.mError);
@@ -0,0 +1,100 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 15:10:02 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 15:10:02 +0200
+ */
+
+package com.streamwide.smartms.volley;
+
+import androidx.annotation.NonNull;
+
+import com.streamwide.smartms.volley.api.VolleyError;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy waiting between attempts, with exponential backoff and
+ * decorrelated jitter: each delay is drawn between the base delay and three
+ * times the previous delay, up to a maximum. Clients failing together thus
+ * spread their retries rather than all hitting the server at once.
+ * <p>
+ * The timeout of each attempt grows like with {@link DefaultRetryPolicy}.
+ */
+public class ExponentialBackoffRetryPolicy extends DefaultRetryPolicy {
+
+    /** The default delay before the first retry, in milliseconds. */
+    public static final int DEFAULT_BASE_DELAY_MS = 250;
+
+    /** The default maximum delay between two attempts, in milliseconds. */
+    public static final int DEFAULT_MAX_DELAY_MS = 10000;
+
+    /** The default number of retries. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private final int mBaseDelayMs;
+
+    private final int mMaxDelayMs;
+
+    /** The delay before the next attempt, 0 before the first retry. */
+    private long mRetryDelayMs;
+
+    /**
+     * Constructs a new retry policy using the default timeout, delays and
+     * number of retries.
+     */
+    public ExponentialBackoffRetryPolicy()
+    {
+        this(DEFAULT_TIMEOUT_MS, DEFAULT_MAX_RETRIES, DEFAULT_BACKOFF_MULT, DEFAULT_BASE_DELAY_MS,
+                        DEFAULT_MAX_DELAY_MS);
+    }
+
+    /**
+     * Constructs a new retry policy.
+     *
+     * @param initialTimeoutMs
+     *            The initial timeout for the policy.
+     * @param maxNumRetries
+     *            The maximum number of retries.
+     * @param backoffMultiplier
+     *            Backoff multiplier of the timeout.
+     * @param baseDelayMs
+     *            The shortest delay between two attempts.
+     * @param maxDelayMs
+     *            The longest delay between two attempts.
+     */
+    public ExponentialBackoffRetryPolicy(int initialTimeoutMs, int maxNumRetries, float backoffMultiplier,
+                                         int baseDelayMs, int maxDelayMs)
+    {
+        super(initialTimeoutMs, maxNumRetries, backoffMultiplier);
+        mBaseDelayMs = baseDelayMs;
+        mMaxDelayMs = maxDelayMs;
+    }
+
+    @Override
+    public void retry(@NonNull VolleyError error) throws VolleyError
+    {
+        super.retry(error);
+        long previousDelayMs = Math.max(mRetryDelayMs, mBaseDelayMs);
+        long upperBoundMs = Math.max(previousDelayMs * 3, mBaseDelayMs + 1);
+        mRetryDelayMs = Math.min(mMaxDelayMs, ThreadLocalRandom.current().nextLong(mBaseDelayMs, upperBoundMs));
+    }
+
+    /**
+     * Returns the delay drawn for the next attempt by the last call to
+     * {@link #retry(VolleyError)}.
+     */
+    @Override
+    public long getRetryDelayMs()
+    {
+        return mRetryDelayMs;
+    }
+}
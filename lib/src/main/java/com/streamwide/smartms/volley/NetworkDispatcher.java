@@ -20,6 +20,7 @@ import android.os.Process;
 import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.streamwide.smartms.volley.api.Cache;
 import com.streamwide.smartms.volley.api.NetworkResponse;
@@ -28,7 +29,12 @@ import com.streamwide.smartms.volley.api.Response;
 import com.streamwide.smartms.volley.api.VolleyError;
 import com.streamwide.smartms.volley.util.CollectionUtil;
 
+import java.io.IOException;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a thread for performing network dispatch from a queue of requests.
@@ -47,6 +53,12 @@ public class NetworkDispatcher extends Thread {
     private final Network mNetwork;
     /** For posting responses and errors. */
     private final ResponseDelivery mDelivery;
+    /** Executor parsing network responses, or null to parse on this thread. */
+    private final Executor mParseExecutor;
+    /** Queue depth and latency counters of the dispatch stages. */
+    private final DispatchStats mStats;
+    /** Executor putting deferred requests back in the queue, or null. */
+    private final ScheduledExecutorService mRetryScheduler;
     /** Used for telling us to die. */
     private volatile boolean mQuit = false;
 
@@ -60,10 +72,57 @@ public class NetworkDispatcher extends Thread {
 *            Network interface to use for performing requests
      */
     public NetworkDispatcher(@NonNull BlockingQueue<Request<?>> queue, @NonNull ResponseDelivery delivery, @NonNull Network network)
+    {
+        this(queue, delivery, network, null, new DispatchStats());
+    }
+
+    /**
+     * Creates a new network dispatcher thread handing network responses over
+     * to a parse executor, so that this thread goes back to the queue as soon
+     * as the network transaction is over. You must call {@link #start()} in
+     * order to begin processing.
+     *
+     * @param queue
+     *            Queue of incoming requests for triage
+     * @param delivery
+     *            Delivery for parsed responses and errors
+     * @param network
+     *            Network interface to use for performing requests
+     * @param parseExecutor
+     *            Executor parsing the network responses, or null to parse
+     *            them on this thread
+     * @param stats
+     *            Counters updated with the queue depth and latency of the
+     *            network and parse stages
+     */
+    public NetworkDispatcher(@NonNull BlockingQueue<Request<?>> queue, @NonNull ResponseDelivery delivery,
+                             @NonNull Network network, @Nullable Executor parseExecutor, @NonNull DispatchStats stats)
+    {
+        this(queue, delivery, network, parseExecutor, stats, null);
+    }
+
+    /**
+     * Creates a new network dispatcher thread, as
+     * {@link #NetworkDispatcher(BlockingQueue, ResponseDelivery, Network, Executor, DispatchStats)},
+     * putting the requests whose retry is deferred back in the queue through
+     * the given scheduler once their delay is over. You must call
+     * {@link #start()} in order to begin processing.
+     *
+     * @param retryScheduler
+     *            Executor delaying the deferred requests, or null to have this
+     *            thread wait out their delay before putting them back, which
+     *            holds it up meanwhile
+     */
+    public NetworkDispatcher(@NonNull BlockingQueue<Request<?>> queue, @NonNull ResponseDelivery delivery,
+                             @NonNull Network network, @Nullable Executor parseExecutor, @NonNull DispatchStats stats,
+                             @Nullable ScheduledExecutorService retryScheduler)
     {
         mQueue = CollectionUtil.copyBlockingQueue(queue);
         mNetwork = network;
         mDelivery = delivery;
+        mParseExecutor = parseExecutor;
+        mStats = stats;
+        mRetryScheduler = retryScheduler;
     }
 
     /**
@@ -101,6 +160,8 @@ public class NetworkDispatcher extends Thread {
                 continue;
             }
 
+            long takeTimeMs = SystemClock.elapsedRealtime();
+            mStats.getNetworkStage().onStarted(getQueueingTimeMs(request, takeTimeMs));
             try {
                 request.addMarker("network-queue-take");
 
@@ -111,6 +172,14 @@ public class NetworkDispatcher extends Thread {
                     continue;
                 }
 
+                // Hold the request back if it must not be sent yet.
+                long waitMs = request.getNotBeforeTimeMs() - takeTimeMs;
+                if (waitMs > 0) {
+                    request.addMarker("network-queue-deferred");
+                    requeue(request, waitMs);
+                    continue;
+                }
+
                 addTrafficStatsTag(request);
 
                 // Perform the network request.
@@ -125,13 +194,13 @@ public class NetworkDispatcher extends Thread {
                     continue;
                 }
 
-                // Parse the response here on the worker thread.
-                Response<?> response = request.parseNetworkResponse(networkResponse);
-                request.addMarker("network-parse-complete");
-
-                // Post the response back.
-                request.markDelivered();
-                mDelivery.postResponse(request, response);
+                // Hand the response over to the parse threads, if any, so that
+                // a slow parse does not keep this network thread idle.
+                dispatchParse(request, networkResponse, startTimeMs);
+            } catch (DeferredRetryError deferredRetry) {
+                long retryDelayMs = deferredRetry.getRetryDelayMs();
+                request.setNotBeforeTimeMs(SystemClock.elapsedRealtime() + retryDelayMs);
+                requeue(request, retryDelayMs);
             } catch (VolleyError volleyError) {
                 volleyError.setNetworkTimeMs(SystemClock.elapsedRealtime() - startTimeMs);
                 parseAndDeliverNetworkError(request, volleyError);
@@ -140,7 +209,121 @@ public class NetworkDispatcher extends Thread {
                 VolleyError volleyError = new VolleyError(e);
                 volleyError.setNetworkTimeMs(SystemClock.elapsedRealtime() - startTimeMs);
                 mDelivery.postError(request, volleyError);
+            } finally {
+                mStats.getNetworkStage().onFinished(SystemClock.elapsedRealtime() - takeTimeMs);
+            }
+        }
+    }
+
+    /**
+     * Returns how long the request waited in its current queue, or 0 if the
+     * time it was queued at is unknown.
+     */
+    private static long getQueueingTimeMs(Request<?> request, long nowMs)
+    {
+        long queuedTimeMs = request.getQueuedTimeMs();
+        return queuedTimeMs > 0 ? nowMs - queuedTimeMs : 0;
+    }
+
+    /**
+     * Puts the given request back in the queue once the given delay is over.
+     * Without retry scheduler, this thread sleeps through the delay: putting
+     * the request back right away would only have it taken and held back
+     * again, over and over, until then.
+     */
+    private void requeue(final Request<?> request, long delayMs)
+    {
+        Runnable requeue = new Runnable() {
+
+            @Override
+            public void run()
+            {
+                request.setQueuedTimeMs(SystemClock.elapsedRealtime());
+                mStats.getNetworkStage().onQueued();
+                mQueue.add(request);
+            }
+        };
+        if (mRetryScheduler != null) {
+            try {
+                mRetryScheduler.schedule(requeue, delayMs, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                // The queue is stopping; the request is dropped with it.
+                request.finish("network-retry-dropped");
+                return;
+            }
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            if (mQuit) {
+                request.finish("network-retry-dropped");
+                // Lets the loop see it is time to quit.
+                Thread.currentThread().interrupt();
+                return;
             }
+            // Woken early: the request is held back again once taken.
+        }
+        requeue.run();
+    }
+
+    private void dispatchParse(Request<?> request, NetworkResponse networkResponse, long startTimeMs)
+    {
+        if (networkResponse.isStreamed()) {
+            // The body is still on the connection: parse it right away rather
+            // than holding the connection while queued for a parse thread.
+            try {
+                parseAndDeliverResponse(request, networkResponse, startTimeMs);
+            } finally {
+                closeQuietly(networkResponse);
+            }
+            return;
+        }
+        if (mParseExecutor != null) {
+            request.setQueuedTimeMs(SystemClock.elapsedRealtime());
+            mStats.getParseStage().onQueued();
+            try {
+                mParseExecutor.execute(new ParseTask(request, networkResponse, startTimeMs));
+                return;
+            } catch (RejectedExecutionException e) {
+                // The queue is stopping; parse on this thread instead.
+                long parseStartMs = SystemClock.elapsedRealtime();
+                mStats.getParseStage().onStarted(0);
+                try {
+                    parseAndDeliverResponse(request, networkResponse, startTimeMs);
+                } finally {
+                    mStats.getParseStage().onFinished(SystemClock.elapsedRealtime() - parseStartMs);
+                }
+                return;
+            }
+        }
+        parseAndDeliverResponse(request, networkResponse, startTimeMs);
+    }
+
+    private void parseAndDeliverResponse(Request<?> request, NetworkResponse networkResponse, long startTimeMs)
+    {
+        try {
+            // Parse the response here on the worker thread.
+            Response<?> response = request.parseNetworkResponse(networkResponse);
+            request.addMarker("network-parse-complete");
+
+            // Post the response back.
+            request.markDelivered();
+            mDelivery.postResponse(request, response);
+        } catch (Exception e) {
+            VolleyLog.e(e, "Unhandled exception %s", e.toString());
+            VolleyError volleyError = new VolleyError(e);
+            volleyError.setNetworkTimeMs(SystemClock.elapsedRealtime() - startTimeMs);
+            mDelivery.postError(request, volleyError);
+        }
+    }
+
+    private static void closeQuietly(NetworkResponse networkResponse)
+    {
+        try {
+            networkResponse.close();
+        } catch (IOException e) {
+            VolleyLog.d("Could not close streamed response: %s", e.toString());
         }
     }
 
@@ -149,4 +332,42 @@ public class NetworkDispatcher extends Thread {
         error = request.parseNetworkError(error);
         mDelivery.postError(request, error);
     }
+
+    /**
+     * Parses and delivers a network response on a parse thread.
+     */
+    private class ParseTask implements Runnable {
+
+        private final Request<?> mRequest;
+        private final NetworkResponse mNetworkResponse;
+        private final long mStartTimeMs;
+
+        ParseTask(Request<?> request, NetworkResponse networkResponse, long startTimeMs)
+        {
+            mRequest = request;
+            mNetworkResponse = networkResponse;
+            mStartTimeMs = startTimeMs;
+        }
+
+        @Override
+        public void run()
+        {
+            long parseStartMs = SystemClock.elapsedRealtime();
+            mStats.getParseStage().onStarted(getQueueingTimeMs(mRequest, parseStartMs));
+            try {
+                mRequest.addMarker("parse-queue-take");
+
+                // The request may have been cancelled while waiting to be
+                // parsed, e.g. while scrolling fast.
+                if (mRequest.isCanceled()) {
+                    mRequest.finish("parse-discard-cancelled");
+                    return;
+                }
+
+                parseAndDeliverResponse(mRequest, mNetworkResponse, mStartTimeMs);
+            } finally {
+                mStats.getParseStage().onFinished(SystemClock.elapsedRealtime() - parseStartMs);
+            }
+        }
+    }
 }
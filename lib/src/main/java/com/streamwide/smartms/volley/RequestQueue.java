@@ -17,6 +17,8 @@ package com.streamwide.smartms.volley;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -25,7 +27,12 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import com.streamwide.smartms.volley.api.Request;
 /**
@@ -68,6 +75,9 @@ public class RequestQueue {
     /** Number of network request dispatcher threads to start. */
     private static final int DEFAULT_NETWORK_THREAD_POOL_SIZE = 4;
 
+    /** Number of response parse threads to start. */
+    private static final int DEFAULT_PARSE_THREAD_POOL_SIZE = 2;
+
     /** Network interface for performing requests. */
     private final Network mNetwork;
 
@@ -77,6 +87,18 @@ public class RequestQueue {
     /** The network dispatchers. */
     private NetworkDispatcher[] mDispatchers;
 
+    /** Number of response parse threads, 0 to parse on the network threads. */
+    private final int mParseThreadPoolSize;
+
+    /** The executor parsing network responses, if any. */
+    private ThreadPoolExecutor mParseExecutor;
+
+    /** The executor putting deferred retries back in the network queue. */
+    private ScheduledThreadPoolExecutor mRetryScheduler;
+
+    /** Queue depth and latency counters of the network and parse stages. */
+    private final DispatchStats mDispatchStats = new DispatchStats();
+
     private List<RequestFinishedListener> mFinishedListeners = new ArrayList<>();
 
     /**
@@ -89,9 +111,30 @@ public class RequestQueue {
 *            A Network interface for performing HTTP requests
      */
     public RequestQueue(int threadPoolSize, @NonNull ResponseDelivery delivery, @NonNull Network network)
+    {
+        this(threadPoolSize, DEFAULT_PARSE_THREAD_POOL_SIZE, delivery, network);
+    }
+
+    /**
+     * Creates the worker pool. Processing will not begin until {@link #start()}
+     * is called.
+     *
+     * @param threadPoolSize
+     *            Number of network dispatcher threads to create
+     * @param parseThreadPoolSize
+     *            Number of threads parsing network responses, or 0 to parse
+     *            them on the network dispatcher threads
+     * @param delivery
+     *            Delivery for parsed responses and errors
+     * @param network
+     *            A Network interface for performing HTTP requests
+     */
+    public RequestQueue(int threadPoolSize, int parseThreadPoolSize, @NonNull ResponseDelivery delivery,
+                        @NonNull Network network)
     {
         mNetwork = network;
         mDispatchers = new NetworkDispatcher[threadPoolSize];
+        mParseThreadPoolSize = parseThreadPoolSize;
         mDelivery = delivery;
     }
 
@@ -127,10 +170,25 @@ public class RequestQueue {
     {
         stop(); // Make sure any currently running dispatchers are stopped.
 
+        if (mParseThreadPoolSize > 0) {
+            mParseExecutor = new ThreadPoolExecutor(mParseThreadPoolSize, mParseThreadPoolSize, 0L,
+                            TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ParseThreadFactory());
+        }
+
+        mRetryScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable)
+            {
+                return new Thread(runnable, "VolleyRetry");
+            }
+        });
+
         // Create network dispatchers (and corresponding threads) up to the pool
         // size.
         for (int i = 0; i < mDispatchers.length; i++) {
-            NetworkDispatcher networkDispatcher = new NetworkDispatcher(mNetworkQueue, mDelivery, mNetwork);
+            NetworkDispatcher networkDispatcher = new NetworkDispatcher(mNetworkQueue, mDelivery, mNetwork,
+                            mParseExecutor, mDispatchStats, mRetryScheduler);
             mDispatchers[i] = networkDispatcher;
             networkDispatcher.start();
         }
@@ -146,6 +204,36 @@ public class RequestQueue {
                 mDispatchers[i].quit();
             }
         }
+        if (mParseExecutor != null) {
+            // Responses already handed over are still parsed and delivered.
+            mParseExecutor.shutdown();
+            mParseExecutor = null;
+        }
+        if (mRetryScheduler != null) {
+            // Like the requests still in the queue, pending retries are not
+            // guaranteed to be processed.
+            mRetryScheduler.shutdownNow();
+            mRetryScheduler = null;
+        }
+    }
+
+    /**
+     * Returns the queue depth and latency counters of the network and parse
+     * stages of this queue.
+     */
+    @NonNull
+    public DispatchStats getDispatchStats()
+    {
+        return mDispatchStats;
+    }
+
+    /**
+     * Returns the delivery posting the responses and errors of this queue.
+     */
+    @NonNull
+    public ResponseDelivery getResponseDelivery()
+    {
+        return mDelivery;
     }
 
     /**
@@ -224,11 +312,39 @@ public class RequestQueue {
         request.setSequence(getSequenceNumber());
         request.addMarker("add-to-queue");
 
+        request.setQueuedTimeMs(SystemClock.elapsedRealtime());
+        mDispatchStats.getNetworkStage().onQueued();
         mNetworkQueue.add(request);
         return request;
 
     }
 
+    /**
+     * Changes the priority of a request, moving it within the network queue if
+     * it is still waiting there. Has no other effect on a request already
+     * being dispatched.
+     *
+     * @param request
+     *            The request to re-prioritize
+     * @param priority
+     *            The new priority of the request
+     */
+    public void changePriority(@NonNull Request<?> request, @NonNull Request.Priority priority)
+    {
+        synchronized (mNetworkQueue) {
+            if (request.getPriority() == priority) {
+                return;
+            }
+            // The queue orders requests on insertion: take it out before
+            // changing its rank.
+            boolean queued = mNetworkQueue.remove(request);
+            request.setPriority(priority);
+            if (queued) {
+                mNetworkQueue.add(request);
+            }
+        }
+    }
+
     /**
      * Called from {@link Request#finish(String)}, indicating that processing of
      * the given request
@@ -269,4 +385,26 @@ public class RequestQueue {
             mFinishedListeners.remove(listener);
         }
     }
+
+    /**
+     * Creates the background-priority threads parsing network responses.
+     */
+    private static class ParseThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable)
+        {
+            return new Thread(new Runnable() {
+
+                @Override
+                public void run()
+                {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "VolleyParse-" + mThreadCount.incrementAndGet());
+        }
+    }
 }
@@ -45,4 +45,14 @@ public interface RetryPolicy {
      *             ran out of attempts), the passed in error is thrown.
      */
     public void retry(@NonNull VolleyError error) throws VolleyError;
+
+    /**
+     * Returns how long to wait before the attempt prepared by the last call to
+     * {@link #retry(VolleyError)}, in milliseconds; 0 to retry right away, the
+     * default.
+     */
+    public default long getRetryDelayMs()
+    {
+        return 0;
+    }
 }
@@ -18,6 +18,7 @@ package com.streamwide.smartms.volley.api;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Map;
 
@@ -116,17 +117,61 @@ public interface Cache {
             return this.softTtl < System.currentTimeMillis();
         }
 
+        /**
+         * Returns a mutable copy of the data. Prefer {@link #getDataBuffer()}
+         * when the data is only read.
+         */
         @Nullable
         public byte[] getData()
         {
             return data != null ? data.clone() : null;
         }
 
+        /**
+         * Returns a read-only view of the data, shared with this entry and
+         * the {@link NetworkResponse} it was built from; no copy is made.
+         */
+        @Nullable
+        public ByteBuffer getDataBuffer()
+        {
+            return data != null ? ByteBuffer.wrap(data).asReadOnlyBuffer() : null;
+        }
+
+        /**
+         * Returns the data without copying it, e.g. to build a
+         * {@link NetworkResponse} from it. The caller must not modify the
+         * array.
+         */
+        @Nullable
+        public byte[] getSharedData()
+        {
+            return data;
+        }
+
+        /** Returns the length of the data in bytes, or 0 if there is none. */
+        public int getDataLength()
+        {
+            return data != null ? data.length : 0;
+        }
+
+        /**
+         * Stores a copy of the given data. Use {@link #setSharedData(byte[])}
+         * to hand over an array that will not be modified anymore.
+         */
         public void setData(@Nullable byte[] data)
         {
             this.data = data != null ? data.clone() : null;
         }
 
+        /**
+         * Stores the given array without copying it. The caller must not
+         * modify the array afterwards.
+         */
+        public void setSharedData(@Nullable byte[] data)
+        {
+            this.data = data;
+        }
+
         @Nullable
         public String getETag()
         {
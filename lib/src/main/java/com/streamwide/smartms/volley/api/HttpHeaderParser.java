@@ -31,6 +31,9 @@ public class HttpHeaderParser {
 
     private static final String PATTERN_RFC1123 = "EEE, dd MMM yyyy HH:mm:ss zzz";
 
+    /** Longest Retry-After delay, in seconds, whose milliseconds fit a long. */
+    private static final long MAX_RETRY_AFTER_SECONDS = Long.MAX_VALUE / 1000;
+
     /**
      * private constructor to hide the implicit public one.
      */
@@ -124,7 +127,7 @@ public class HttpHeaderParser {
         }
 
         Cache.Entry entry = new Cache.Entry();
-        entry.setData(response.data);
+        entry.setSharedData(response.data);
         entry.setETag(serverEtag);
         entry.setSoftTTL(softExpire);
         entry.setTTL(finalExpire);
@@ -136,9 +139,63 @@ public class HttpHeaderParser {
     }
 
     /**
-     * Parse date in RFC1123 format, and return its value as epoch
+     * Returns the delay requested by the Retry-After header of a response, in
+     * milliseconds, or -1 if there is none. The header holds either a number
+     * of seconds or a date, taken relative to the Date header if there is one
+     * so that clock skew does not matter.
+     */
+    public static long parseRetryAfterMs(@NonNull Map<String, String> headers)
+    {
+        String headerValue = headers.get("Retry-After");
+        if (headerValue == null) {
+            return -1;
+        }
+        headerValue = headerValue.trim();
+        try {
+            // Clamped so that a huge delay does not overflow into a short one.
+            long seconds = Long.parseLong(headerValue);
+            return Math.max(0, Math.min(seconds, MAX_RETRY_AFTER_SECONDS) * 1000);
+        } catch (NumberFormatException e) {
+            if (isDigits(headerValue)) {
+                // Too many seconds for a long.
+                return MAX_RETRY_AFTER_SECONDS * 1000;
+            }
+            // Not delta-seconds, try an HTTP date.
+        }
+        long retryAt = parseDateAsEpoch(headerValue);
+        if (retryAt == 0) {
+            return -1;
+        }
+        String serverDate = headers.get("Date");
+        long now = serverDate != null ? parseDateAsEpoch(serverDate) : 0;
+        if (now == 0) {
+            now = System.currentTimeMillis();
+        }
+        return Math.max(0, retryAt - now);
+    }
+
+    /**
+     * Returns true if the given string is a non-empty run of decimal digits.
+     */
+    private static boolean isDigits(String value)
+    {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse date in RFC1123 format, and return its value as epoch, or 0 if
+     * it cannot be parsed
      */
-    private static long parseDateAsEpoch(String dateStr)
+    public static long parseDateAsEpoch(@NonNull String dateStr)
     {
         try {
             // Parse date in RFC1123 format if this header contains one
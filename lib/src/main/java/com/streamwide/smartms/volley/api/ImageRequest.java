@@ -15,9 +15,11 @@
 
 package com.streamwide.smartms.volley.api;
 
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
 import android.widget.ImageView.ScaleType;
 
 import androidx.annotation.NonNull;
@@ -26,7 +28,12 @@ import androidx.annotation.Nullable;
 import com.streamwide.smartms.volley.DefaultRetryPolicy;
 import com.streamwide.smartms.volley.ParseError;
 import com.streamwide.smartms.volley.VolleyLog;
+import com.streamwide.smartms.volley.toolbox.BitmapPool;
 import com.streamwide.smartms.volley.toolbox.HurlStack;
+import com.streamwide.smartms.volley.toolbox.ImageDecodeScheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * A canned request for getting an image at a given URL and calling
@@ -48,12 +55,25 @@ public class ImageRequest extends Request<Bitmap> {
     private final int mMaxWidth;
     private final int mMaxHeight;
     private ScaleType mScaleType;
+    private volatile Response.Listener<Bitmap> mPreviewListener;
+
+    /** Smallest image, in pixels, worth a preview before its full decode. */
+    private static final long PREVIEW_MIN_PIXELS = 1024 * 1024;
+
+    /** Sample size of a preview, relative to the one of the full decode. */
+    private static final int PREVIEW_SAMPLE_MULTIPLE = 8;
 
     /**
-     * Decoding lock so that we don't decode more than one image at a time (to
-     * avoid OOM's)
+     * Number of times a decode failing with an OOM is retried, each time with
+     * twice the sample size.
      */
-    private static final Object sDecodeLock = new Object();
+    private static final int MAX_OOM_RETRIES = 2;
+
+    /**
+     * Scheduler admitting decodes against a memory budget (to avoid OOM's)
+     */
+    private static volatile ImageDecodeScheduler sDecodeScheduler =
+        new ImageDecodeScheduler(ImageDecodeScheduler.getDefaultBudgetBytes());
 
     /**
      * Creates a new image request, decoding to a maximum specified width and
@@ -86,6 +106,7 @@ public class ImageRequest extends Request<Bitmap> {
     {
         super(HurlStack.HttpMethod.GET, url, errorListener);
         setRetryPolicy(new DefaultRetryPolicy(IMAGE_TIMEOUT_MS, IMAGE_MAX_RETRIES, IMAGE_BACKOFF_MULT));
+        setPriority(Priority.LOW);
         mListener = listener;
         mDecodeConfig = decodeConfig;
         mMaxWidth = maxWidth;
@@ -107,11 +128,41 @@ public class ImageRequest extends Request<Bitmap> {
         this(url, listener, maxWidth, maxHeight, ScaleType.CENTER_INSIDE, decodeConfig, errorListener);
     }
 
-    @Override
-    @NonNull
-    public Priority getPriority()
+    /**
+     * Sets a listener receiving a low-resolution preview of large images ahead
+     * of the full decode: the embedded EXIF thumbnail if there is one, a
+     * heavily sampled decode otherwise. Must be set before the request is
+     * added to a queue.
+     *
+     * @param previewListener
+     *            Listener to receive the preview, or null for no preview
+     */
+    public void setPreviewListener(@Nullable Response.Listener<Bitmap> previewListener)
     {
-        return Priority.LOW;
+        mPreviewListener = previewListener;
+    }
+
+    /**
+     * Pool of bitmaps reused as decode targets, or null to always allocate
+     */
+    private static volatile BitmapPool sBitmapPool;
+
+    /**
+     * Sets the pool of bitmaps reused as decode targets by all image requests,
+     * or null to always allocate fresh bitmaps. Intermediate bitmaps of scaled
+     * decodes are returned to this pool.
+     */
+    public static void setBitmapPool(@Nullable BitmapPool bitmapPool)
+    {
+        sBitmapPool = bitmapPool;
+    }
+
+    /**
+     * Sets the scheduler admitting the decodes of all image requests.
+     */
+    public static void setDecodeScheduler(@NonNull ImageDecodeScheduler decodeScheduler)
+    {
+        sDecodeScheduler = decodeScheduler;
     }
 
     /**
@@ -130,9 +181,11 @@ public class ImageRequest extends Request<Bitmap> {
      *            Actual size of the secondary dimension
      * @param scaleType
      *            The ScaleType used to calculate the needed image size.
+     * @return The size of the primary dimension the image is scaled down to,
+     *         if larger
      */
-    private static int getResizedDimension(int maxPrimary, int maxSecondary, int actualPrimary, int actualSecondary,
-                                           ScaleType scaleType)
+    public static int getResizedDimension(int maxPrimary, int maxSecondary, int actualPrimary, int actualSecondary,
+                                          @NonNull ScaleType scaleType)
     {
 
         // If no dominant value at all, just return the actual.
@@ -181,51 +234,109 @@ public class ImageRequest extends Request<Bitmap> {
     @Nullable
     public Response<Bitmap> parseNetworkResponse(@NonNull NetworkResponse response)
     {
-        // Serialize all decode on a global lock to reduce concurrent heap
-        // usage.
-        synchronized (sDecodeLock) {
-            try {
-                return doParse(response);
-            } catch (OutOfMemoryError e) {
-                VolleyLog.e(e, "Caught OOM for %d byte image, url=%s", response.data.length, getUrl());
-                return Response.error(new ParseError(e));
+        // First get the natural bounds: this is cheap, and tells how much
+        // memory the decode will need.
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inJustDecodeBounds = true;
+        decodeBounds(response, decodeOptions);
+        int actualWidth = decodeOptions.outWidth;
+        int actualHeight = decodeOptions.outHeight;
+        if (actualWidth <= 0 || actualHeight <= 0) {
+            return Response.error(new ParseError(response));
+        }
+        decodeOptions.inJustDecodeBounds = false;
+
+        // Then compute the dimensions we would ideally like to decode to.
+        int desiredWidth = getResizedDimension(mMaxWidth, mMaxHeight, actualWidth, actualHeight, mScaleType);
+        int desiredHeight = getResizedDimension(mMaxHeight, mMaxWidth, actualHeight, actualWidth, mScaleType);
+        int sampleSize = 1;
+        if (mMaxWidth == 0 && mMaxHeight == 0) {
+            decodeOptions.inPreferredConfig = mDecodeConfig;
+        } else {
+            // Decode to the nearest power of two scaling factor.
+            sampleSize = findBestSampleSize(actualWidth, actualHeight, desiredWidth, desiredHeight);
+        }
+
+        // Wait for enough of the decode budget rather than serializing all
+        // decodes, so that small images decode in parallel.
+        ImageDecodeScheduler scheduler = sDecodeScheduler;
+        long reservedBytes = scheduler.acquire(estimateDecodeBytes(actualWidth, actualHeight, desiredWidth,
+                        desiredHeight, sampleSize, decodeOptions.inPreferredConfig));
+        try {
+            // Show something while the full image decodes. The preview is
+            // sampled far coarser than the full decode, so it fits in the
+            // same reservation.
+            if (mPreviewListener != null && (long) actualWidth * actualHeight >= PREVIEW_MIN_PIXELS) {
+                Bitmap preview = decodePreview(response, sampleSize * PREVIEW_SAMPLE_MULTIPLE);
+                if (preview != null) {
+                    postIntermediateResponse(preview);
+                }
+            }
+
+            for (int retry = 0;; retry++) {
+                decodeOptions.inSampleSize = sampleSize;
+                try {
+                    return doParse(response, decodeOptions, actualWidth, actualHeight, desiredWidth, desiredHeight);
+                } catch (OutOfMemoryError e) {
+                    if (retry >= MAX_OOM_RETRIES) {
+                        VolleyLog.e(e, "Caught OOM for image, url=%s", getUrl());
+                        return Response.error(new ParseError(e));
+                    }
+                    // Fall back to a coarser sampling.
+                    sampleSize *= 2;
+                    VolleyLog.e(e, "Caught OOM for image, url=%s, retrying with sample size %d", getUrl(),
+                                    sampleSize);
+                }
             }
+        } finally {
+            scheduler.release(reservedBytes);
         }
     }
 
     /**
      * The real guts of parseNetworkResponse. Broken out for readability.
      */
-    private Response<Bitmap> doParse(NetworkResponse response)
+    private Response<Bitmap> doParse(NetworkResponse response, BitmapFactory.Options decodeOptions, int actualWidth,
+                                     int actualHeight, int desiredWidth, int desiredHeight)
     {
-        byte[] data = response.data;
-        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
-        Bitmap bitmap = null;
+        BitmapPool bitmapPool = sBitmapPool;
+        int sampleSize = decodeOptions.inSampleSize;
+        int sampledWidth = (actualWidth + sampleSize - 1) / sampleSize;
+        int sampledHeight = (actualHeight + sampleSize - 1) / sampleSize;
+        Bitmap bitmap;
         if (mMaxWidth == 0 && mMaxHeight == 0) {
-            decodeOptions.inPreferredConfig = mDecodeConfig;
-            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions);
+            bitmap = decodeIntoPooledBitmap(response, decodeOptions, bitmapPool, sampledWidth, sampledHeight);
         } else {
-            // If we have to resize this image, first get the natural bounds.
-            decodeOptions.inJustDecodeBounds = true;
-            BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions);
-            int actualWidth = decodeOptions.outWidth;
-            int actualHeight = decodeOptions.outHeight;
-
-            // Then compute the dimensions we would ideally like to decode to.
-            int desiredWidth = getResizedDimension(mMaxWidth, mMaxHeight, actualWidth, actualHeight, mScaleType);
-            int desiredHeight = getResizedDimension(mMaxHeight, mMaxWidth, actualHeight, actualWidth, mScaleType);
-
-            // Decode to the nearest power of two scaling factor.
-            decodeOptions.inJustDecodeBounds = false;
-
-            decodeOptions.inSampleSize = findBestSampleSize(actualWidth, actualHeight, desiredWidth, desiredHeight);
-            Bitmap tempBitmap = BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions);
+            Bitmap tempBitmap;
+            int scaledHeight = getScaledHeight(sampledWidth, sampledHeight, desiredWidth);
+            if (desiredWidth > 0 && sampledWidth > desiredWidth && scaledHeight <= desiredHeight
+                && scaledHeight >= desiredHeight - 1) {
+                // Let the decoder scale the sampled pixels to the exact size,
+                // rather than allocating a scaled copy afterwards.
+                decodeOptions.inScaled = true;
+                decodeOptions.inDensity = sampledWidth;
+                decodeOptions.inTargetDensity = desiredWidth;
+                tempBitmap = decodeIntoPooledBitmap(response, decodeOptions, bitmapPool, desiredWidth, scaledHeight);
+                if (tempBitmap != null) {
+                    // The decoder stamped the target density on the bitmap:
+                    // restore the one of regular decodes.
+                    tempBitmap.setDensity(Resources.getSystem().getDisplayMetrics().densityDpi);
+                }
+            } else {
+                decodeOptions.inDensity = 0;
+                decodeOptions.inTargetDensity = 0;
+                tempBitmap = decodeIntoPooledBitmap(response, decodeOptions, bitmapPool, sampledWidth, sampledHeight);
+            }
 
-            // If necessary, scale down to the maximal acceptable size.
+            // If still necessary, scale down to the maximal acceptable size.
             if (tempBitmap != null
                 && (tempBitmap.getWidth() > desiredWidth || tempBitmap.getHeight() > desiredHeight)) {
                 bitmap = Bitmap.createScaledBitmap(tempBitmap, desiredWidth, desiredHeight, true);
-                tempBitmap.recycle();
+                if (bitmapPool != null) {
+                    bitmapPool.put(tempBitmap);
+                } else {
+                    tempBitmap.recycle();
+                }
             } else {
                 bitmap = tempBitmap;
             }
@@ -238,12 +349,145 @@ public class ImageRequest extends Request<Bitmap> {
         }
     }
 
+    /**
+     * Returns the height the decoder gives the sampled bitmap when scaling it
+     * to the desired width. When it is off the desired height by more than a
+     * rounding pixel, as with stretching scale types, the bitmap goes through
+     * a scaled copy instead.
+     */
+    private static int getScaledHeight(int sampledWidth, int sampledHeight, int desiredWidth)
+    {
+        return (int) (sampledHeight * ((float) desiredWidth / sampledWidth) + 0.5f);
+    }
+
+    /**
+     * Decodes the response, reusing a bitmap of the pool as the decode target
+     * when one fits the decoded dimensions. A streamed body is never decoded
+     * into a pooled bitmap: it could not be decoded again if the bitmap is
+     * rejected.
+     */
+    private Bitmap decodeIntoPooledBitmap(NetworkResponse response, BitmapFactory.Options decodeOptions,
+                                          BitmapPool bitmapPool, int decodedWidth, int decodedHeight)
+    {
+        decodeOptions.inBitmap = null;
+        if (bitmapPool == null || response.isStreamed()) {
+            return decodeBitmap(response, decodeOptions);
+        }
+
+        // Only mutable bitmaps can be reused, so decode mutable bitmaps.
+        decodeOptions.inMutable = true;
+        Config config = decodeOptions.inPreferredConfig != null ? decodeOptions.inPreferredConfig : Config.ARGB_8888;
+        decodeOptions.inBitmap = bitmapPool.get(decodedWidth, decodedHeight, config);
+        if (decodeOptions.inBitmap == null) {
+            return decodeBitmap(response, decodeOptions);
+        }
+        try {
+            return decodeBitmap(response, decodeOptions);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap cannot hold this decode after all.
+            bitmapPool.put(decodeOptions.inBitmap);
+            decodeOptions.inBitmap = null;
+            return decodeBitmap(response, decodeOptions);
+        }
+    }
+
+    /**
+     * Reads the dimensions of the image into {@code decodeOptions.outWidth}
+     * and {@code decodeOptions.outHeight}; {@code inJustDecodeBounds} is set.
+     * Decodes {@link NetworkResponse#data} by default.
+     */
+    protected void decodeBounds(@NonNull NetworkResponse response, @NonNull BitmapFactory.Options decodeOptions)
+    {
+        byte[] data = response.data;
+        BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions);
+    }
+
+    /**
+     * Decodes the pixels of the image with the given options, or returns null
+     * if the image cannot be decoded. May be called again with a coarser
+     * sampling after an {@link OutOfMemoryError}. Decodes
+     * {@link NetworkResponse#data} by default.
+     */
+    @Nullable
+    protected Bitmap decodeBitmap(@NonNull NetworkResponse response, @NonNull BitmapFactory.Options decodeOptions)
+    {
+        byte[] data = response.data;
+        return BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions);
+    }
+
+    /**
+     * Decodes a preview of the image: its EXIF thumbnail if it has one, the
+     * image at the given sample size otherwise. Returns null if no preview
+     * can be decoded.
+     */
+    @Nullable
+    protected Bitmap decodePreview(@NonNull NetworkResponse response, int previewSampleSize)
+    {
+        if (response.isStreamed()) {
+            return null;
+        }
+        Bitmap thumbnail = decodeExifThumbnail(response.getDataStream());
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        BitmapFactory.Options previewOptions = new BitmapFactory.Options();
+        previewOptions.inSampleSize = previewSampleSize;
+        previewOptions.inPreferredConfig = Config.RGB_565;
+        try {
+            return decodeBitmap(response, previewOptions);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the thumbnail embedded in the EXIF data read from the given
+     * stream, or returns null if there is none.
+     */
+    @Nullable
+    protected static Bitmap decodeExifThumbnail(@NonNull InputStream in)
+    {
+        try {
+            ExifInterface exif = new ExifInterface(in);
+            byte[] thumbnail = exif.hasThumbnail() ? exif.getThumbnail() : null;
+            return thumbnail != null ? BitmapFactory.decodeByteArray(thumbnail, 0, thumbnail.length) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Estimates the peak bitmap memory of a decode: the sampled bitmap, plus
+     * the scaled copy when the sampled bitmap is larger than desired.
+     */
+    private static long estimateDecodeBytes(int actualWidth, int actualHeight, int desiredWidth, int desiredHeight,
+                                            int sampleSize, Config config)
+    {
+        int bytesPerPixel = ImageDecodeScheduler.getBytesPerPixel(config != null ? config : Config.ARGB_8888);
+        long sampledWidth = (actualWidth + sampleSize - 1) / sampleSize;
+        long sampledHeight = (actualHeight + sampleSize - 1) / sampleSize;
+        long bytes = sampledWidth * sampledHeight * bytesPerPixel;
+        if (sampledWidth > desiredWidth || sampledHeight > desiredHeight) {
+            bytes += (long) desiredWidth * desiredHeight * bytesPerPixel;
+        }
+        return bytes;
+    }
+
     @Override
     public void deliverResponse(@Nullable Bitmap response)
     {
         mListener.onResponse(response);
     }
 
+    @Override
+    public void deliverIntermediateResponse(@Nullable Bitmap response)
+    {
+        Response.Listener<Bitmap> previewListener = mPreviewListener;
+        if (previewListener != null) {
+            previewListener.onResponse(response);
+        }
+    }
+
     /**
      * Returns the largest power-of-two divisor for use in downscaling a bitmap
      * that will not result in the scaling past the desired dimensions.
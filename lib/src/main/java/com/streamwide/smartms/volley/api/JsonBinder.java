@@ -0,0 +1,28 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 10:31:45 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 10:31:45 +0200
+ */
+
+package com.streamwide.smartms.volley.api;
+
+/**
+ * Binds a JSON document directly into an instance of {@code T}, without any
+ * runtime reflection. Binders are either written by hand or generated at build
+ * time, and registered in {@link JsonBinders} for use by
+ * {@link TypedJsonRequest}.
+ *
+ * @param <T>
+ *            The type produced by this binder
+ */
+public interface JsonBinder<T> extends StreamingJsonRequest.JsonStreamParser<T> {
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 10:31:45 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 10:31:45 +0200
+ */
+
+package com.streamwide.smartms.volley.api;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link JsonBinder}s used by {@link TypedJsonRequest}, keyed
+ * by the type they produce.
+ */
+public class JsonBinders {
+
+    private static final Map<Class<?>, JsonBinder<?>> sBinders = new ConcurrentHashMap<>();
+
+    /**
+     * private constructor to hide the implicit public one.
+     */
+    private JsonBinders()
+    {
+        // do nothing...
+    }
+
+    /**
+     * Registers the binder for the given type, replacing any previous one.
+     */
+    public static <T> void register(@NonNull Class<T> type, @NonNull JsonBinder<T> binder)
+    {
+        sBinders.put(type, binder);
+    }
+
+    /**
+     * Returns the binder registered for the given type, or null if there is
+     * none.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public static <T> JsonBinder<T> get(@NonNull Class<T> type)
+    {
+        return (JsonBinder<T>) sBinders.get(type);
+    }
+
+    /**
+     * Returns a binder reading a JSON array (or null) whose elements are bound
+     * with the given element binder.
+     */
+    @NonNull
+    public static <T> JsonBinder<List<T>> listOf(@NonNull final JsonBinder<T> elementBinder)
+    {
+        return new JsonBinder<List<T>>() {
+
+            @Override
+            @Nullable
+            public List<T> parse(@NonNull JsonReader reader) throws IOException
+            {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    return null;
+                }
+                List<T> result = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    result.add(elementBinder.parse(reader));
+                }
+                reader.endArray();
+                return result;
+            }
+        };
+    }
+}
@@ -15,18 +15,24 @@
 
 package com.streamwide.smartms.volley.api;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.streamwide.smartms.volley.Network;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Map;
 
 /**
  * Data and headers returned from {@link Network#performRequest(Request)}.
  */
-public class NetworkResponse {
+public class NetworkResponse implements Closeable {
 
     /**
      * Creates a new network response.
@@ -51,6 +57,31 @@ public class NetworkResponse {
         this.headers = headers;
         this.notModified = notModified;
         this.networkTimeMs = networkTimeMs;
+        this.mStream = null;
+    }
+
+    /**
+     * Creates a new network response whose body is read from the given
+     * stream by the parser, see {@link Request#shouldStreamResponse()}.
+     *
+     * @param statusCode
+     *            the HTTP status code
+     * @param stream
+     *            Stream over the response body; closed by {@link #close()}
+     * @param headers
+     *            Headers returned with this response, or null for none
+     * @param networkTimeMs
+     *            Time to receive the response headers
+     */
+    public NetworkResponse(int statusCode, @NonNull InputStream stream, @Nullable Map<String, String> headers,
+                           long networkTimeMs)
+    {
+        this.statusCode = statusCode;
+        this.data = null;
+        this.headers = headers;
+        this.notModified = false;
+        this.networkTimeMs = networkTimeMs;
+        this.mStream = stream;
     }
 
     public NetworkResponse(int statusCode, @Nullable byte[] data, @Nullable Map<String, String> headers, boolean notModified)
@@ -68,10 +99,69 @@ public class NetworkResponse {
         this(HttpURLConnection.HTTP_OK, data, headers, false, 0);
     }
 
+    /**
+     * Returns a read-only view of {@link #data}; the bytes are shared, not
+     * copied.
+     */
+    @Nullable
+    public ByteBuffer getDataBuffer()
+    {
+        return data != null ? ByteBuffer.wrap(data).asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * Returns a stream over {@link #data} that reads the shared bytes in place,
+     * or the live body stream of a streamed response. A streamed body can only
+     * be read once.
+     */
+    @NonNull
+    public InputStream getDataStream()
+    {
+        if (mStream != null) {
+            return mStream;
+        }
+        return new ByteArrayInputStream(data != null ? data : new byte[0]);
+    }
+
+    /**
+     * Returns true if the body of this response is a live stream rather than
+     * {@link #data}.
+     */
+    public boolean isStreamed()
+    {
+        return mStream != null;
+    }
+
+    /**
+     * Releases the body stream of a streamed response; does nothing
+     * otherwise.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (mStream != null) {
+            mStream.close();
+        }
+    }
+
+    /**
+     * Returns a mutable copy of {@link #data}, for callers that need to modify
+     * the body.
+     */
+    @Nullable
+    public byte[] copyData()
+    {
+        return data != null ? data.clone() : null;
+    }
+
     /** The HTTP status code. */
     public final int statusCode;
 
-    /** Raw data from this response. */
+    /**
+     * Raw data from this response. The array is shared with the cache entry
+     * and parsers, and must not be modified; use {@link #copyData()} for a
+     * mutable copy.
+     */
     public final byte[] data;
 
     /** Response headers. */
@@ -82,4 +172,7 @@ public class NetworkResponse {
 
     /** Network roundtrip time in milliseconds. */
     public final long networkTimeMs;
+
+    /** Live body stream of a streamed response, or null. */
+    private final InputStream mStream;
 }
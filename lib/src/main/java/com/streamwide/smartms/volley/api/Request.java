@@ -53,6 +53,12 @@ public abstract class Request<T> implements Comparable<Request<T>> {
      */
     private static final String DEFAULT_PARAMS_ENCODING = "UTF-8";
 
+    /**
+     * Header carrying a key the server uses to apply a request only once,
+     * making a non-idempotent request safe to retry.
+     */
+    public static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+
     /** An event log tracing the lifetime of this request; for debugging. */
     private final VolleyLog.MarkerLog mEventLog = false ? new VolleyLog.MarkerLog() : null;
 
@@ -63,6 +69,18 @@ public abstract class Request<T> implements Comparable<Request<T>> {
      */
     private final String mMethod;
 
+    /** Body of this request, encoded on first use and replayed on retries. */
+    private byte[] mEncodedBody;
+
+    /** True once the body has been encoded, possibly to null. */
+    private boolean mBodyEncoded = false;
+
+    /** True to hedge this request, see {@link #setHedged(boolean)}. */
+    private boolean mHedged = false;
+
+    /** Host of the URL of this request, parsed on first use. */
+    private volatile String mHost;
+
     /** URL of this request. */
     private final String mUrl;
 
@@ -88,6 +106,18 @@ public abstract class Request<T> implements Comparable<Request<T>> {
     // A cheap variant of request tracing used to dump slow requests.
     private long mRequestBirthTime = 0;
 
+    /**
+     * Time at which this request was last queued for a dispatch stage, used to
+     * measure queueing latency.
+     */
+    private long mQueuedTimeMs = 0;
+
+    /**
+     * Time before which this request must not be sent, in
+     * {@link SystemClock#elapsedRealtime()} milliseconds, or 0.
+     */
+    private volatile long mNotBeforeTimeMs = 0;
+
     // if true use SW certif for initializing tls connection, false ignore cert in
     // case of https connection
     private boolean mUseTls = false;
@@ -104,6 +134,9 @@ public abstract class Request<T> implements Comparable<Request<T>> {
     /** The retry policy for this request. */
     private RetryPolicy mRetryPolicy;
 
+    /** The dispatch priority of this request. */
+    private volatile Priority mPriority = Priority.NORMAL;
+
 
     /** An opaque token tagging this request; used for bulk cancellation. */
     private Object mTag;
@@ -198,6 +231,20 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         return mEventLog;
     }
 
+    /**
+     * Returns the host of the URL of this request, or null if there is none.
+     */
+    @Nullable
+    public String getHost()
+    {
+        String host = mHost;
+        if (host == null && !TextUtils.isEmpty(mUrl)) {
+            host = Uri.parse(mUrl).getHost();
+            mHost = host;
+        }
+        return host;
+    }
+
     /**
      * @return The hashcode of the URL's host component, or 0 if there is none.
      */
@@ -322,6 +369,43 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         return mSequence;
     }
 
+    /**
+     * Records the time, in {@link SystemClock#elapsedRealtime()} milliseconds,
+     * at which this request was queued for a dispatch stage. Used by
+     * {@link RequestQueue}.
+     */
+    public final void setQueuedTimeMs(long queuedTimeMs)
+    {
+        mQueuedTimeMs = queuedTimeMs;
+    }
+
+    /**
+     * Returns the time at which this request was last queued for a dispatch
+     * stage.
+     */
+    public final long getQueuedTimeMs()
+    {
+        return mQueuedTimeMs;
+    }
+
+    /**
+     * Sets the time, in {@link SystemClock#elapsedRealtime()} milliseconds,
+     * before which this request must not be sent, e.g. while waiting to be
+     * retried. The network dispatchers hold it back until then.
+     */
+    public final void setNotBeforeTimeMs(long notBeforeTimeMs)
+    {
+        mNotBeforeTimeMs = notBeforeTimeMs;
+    }
+
+    /**
+     * Returns the time before which this request must not be sent, or 0.
+     */
+    public final long getNotBeforeTimeMs()
+    {
+        return mNotBeforeTimeMs;
+    }
+
     /**
      * Returns the URL of this request.
      */
@@ -509,6 +593,52 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         return null;
     }
 
+    /**
+     * Returns the body to be sent, as returned by {@link #getBody()} on the
+     * first call. Network stacks send this one, so that each attempt replays
+     * the same bytes without encoding the body again.
+     *
+     * @throws AuthFailureError
+     *             in the event of auth failure
+     */
+    @Nullable
+    public final synchronized byte[] getEncodedBody() throws AuthFailureError
+    {
+        if (!mBodyEncoded) {
+            mEncodedBody = getBody();
+            mBodyEncoded = true;
+        }
+        return mEncodedBody;
+    }
+
+    /**
+     * Returns true if sending this request twice has the same effect as
+     * sending it once, so that it can be retried after an attempt that may
+     * have reached the server: for GET, HEAD, OPTIONS, PUT and DELETE
+     * requests, and for requests with an {@link #HEADER_IDEMPOTENCY_KEY}
+     * header.
+     */
+    public boolean isIdempotent()
+    {
+        String method = getMethod();
+        if (HurlStack.HttpMethod.GET.equalsIgnoreCase(method) || HurlStack.HttpMethod.HEAD.equalsIgnoreCase(method)
+            || HurlStack.HttpMethod.OPTIONS.equalsIgnoreCase(method)
+            || HurlStack.HttpMethod.PUT.equalsIgnoreCase(method)
+            || HurlStack.HttpMethod.DELETE.equalsIgnoreCase(method)) {
+            return true;
+        }
+        try {
+            for (String name : getHeaders().keySet()) {
+                if (HEADER_IDEMPOTENCY_KEY.equalsIgnoreCase(name)) {
+                    return true;
+                }
+            }
+        } catch (AuthFailureError e) {
+            // Not sent either way.
+        }
+        return false;
+    }
+
     /**
      * Converts <code>params</code> into an application/x-www-form-urlencoded
      * encoded string.
@@ -544,7 +674,21 @@ public abstract class Request<T> implements Comparable<Request<T>> {
     @NonNull
     public Priority getPriority()
     {
-        return Priority.NORMAL;
+        return mPriority;
+    }
+
+    /**
+     * Sets the {@link Priority} of this request. Must be set before the
+     * request is added to a queue; use
+     * {@link RequestQueue#changePriority(Request, Priority)} afterwards.
+     *
+     * @return This Request object to allow for chaining.
+     */
+    @NonNull
+    public Request<?> setPriority(@NonNull Priority priority)
+    {
+        mPriority = priority;
+        return this;
     }
 
     /**
@@ -578,6 +722,29 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         mResponseDelivered = true;
     }
 
+    /**
+     * Enables hedging for this GET request, disabled by default: if it has not
+     * completed within the usual latency of its host, a second identical
+     * attempt is sent and the first response wins. Meant for latency-critical
+     * reads; ignored for other methods and for streamed responses.
+     *
+     * @return This Request object to allow for chaining.
+     */
+    @NonNull
+    public Request<?> setHedged(boolean hedged)
+    {
+        mHedged = hedged;
+        return this;
+    }
+
+    /**
+     * Returns true if this request may be hedged.
+     */
+    public boolean isHedged()
+    {
+        return mHedged && HurlStack.HttpMethod.GET.equalsIgnoreCase(getMethod()) && !shouldStreamResponse();
+    }
+
     /**
      * Returns true if this request has had a response delivered for it.
      */
@@ -586,6 +753,18 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         return mResponseDelivered;
     }
 
+    /**
+     * Returns true if the response body should be handed to
+     * {@link #parseNetworkResponse(NetworkResponse)} as a live stream, read
+     * from the connection by the parser, rather than as a byte array.
+     * Streamed responses are parsed on the network thread and their
+     * {@link NetworkResponse#data} is null; false by default.
+     */
+    public boolean shouldStreamResponse()
+    {
+        return false;
+    }
+
     /**
      * Subclasses must implement this to parse the raw network response
      * and return an appropriate response type. This method will be
@@ -628,6 +807,32 @@ public abstract class Request<T> implements Comparable<Request<T>> {
      */
     public abstract void deliverResponse(@Nullable T response);
 
+    /**
+     * Delivers an intermediate result, posted ahead of the final response. The
+     * default implementation delivers it like a response.
+     *
+     * @param response
+     *            The intermediate result
+     * @see #postIntermediateResponse(Object)
+     */
+    public void deliverIntermediateResponse(@Nullable T response)
+    {
+        deliverResponse(response);
+    }
+
+    /**
+     * Posts an intermediate result, e.g. a preview, to be delivered through
+     * {@link #deliverIntermediateResponse(Object)} before the response
+     * returned by {@link #parseNetworkResponse(NetworkResponse)}. Only to be
+     * called while parsing; does nothing if the request is not in a queue.
+     */
+    protected final void postIntermediateResponse(@Nullable T result)
+    {
+        if (mRequestQueue != null) {
+            mRequestQueue.getResponseDelivery().postResponse(this, Response.intermediate(result));
+        }
+    }
+
     /**
      * Delivers error message to the ErrorListener that the Request was
      * initialized with.
@@ -50,6 +50,19 @@ public class Response<T> {
         return new Response<>(result, cacheEntry);
     }
 
+    /**
+     * Returns a successful intermediate response: a first result followed by
+     * the final one, e.g. the preview of an image. It carries no cache
+     * metadata.
+     */
+    @NonNull
+    public static <T> Response<T> intermediate(@Nullable T result)
+    {
+        Response<T> response = new Response<>(result, null);
+        response.setIntermediate(true);
+        return response;
+    }
+
     /**
      * Returns a failed response containing the given error code and an optional
      * localized message displayed to the user.
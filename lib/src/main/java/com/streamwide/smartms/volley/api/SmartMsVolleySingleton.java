@@ -15,6 +15,7 @@
 
 package com.streamwide.smartms.volley.api;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
@@ -28,11 +29,15 @@ import com.streamwide.smartms.volley.Network;
 import com.streamwide.smartms.volley.RequestQueue;
 import com.streamwide.smartms.volley.ResponseDelivery;
 import com.streamwide.smartms.volley.toolbox.BasicNetwork;
+import com.streamwide.smartms.volley.toolbox.BitmapPool;
+import com.streamwide.smartms.volley.toolbox.ByteArrayPool;
+import com.streamwide.smartms.volley.toolbox.DiskBasedCache;
 import com.streamwide.smartms.volley.toolbox.HttpStack;
 import com.streamwide.smartms.volley.toolbox.HurlStack;
 import com.streamwide.smartms.volley.toolbox.ImageLoader;
 import com.streamwide.smartms.volley.util.LruBitmapCache;
 
+import java.io.File;
 import java.net.HttpURLConnection;
 
 import javax.net.ssl.HostnameVerifier;
@@ -41,12 +46,21 @@ import javax.net.ssl.SSLSocketFactory;
 public class SmartMsVolleySingleton {
 
     private static final String TAG = SmartMsVolleySingleton.class.getSimpleName();
+
+    /** On-disk image cache directory, under the application cache dir. */
+    private static final String IMAGE_CACHE_DIR = "volley-images";
+
+    /** Maximum disk usage of the image cache in bytes. */
+    private static final int IMAGE_DISK_CACHE_SIZE_BYTES = 20 * 1024 * 1024;
     private SSLSocketFactory sslSocketFactory;
     private HostnameVerifier hostnameVerifier;
 
     private static SmartMsVolleySingleton instance;
     private RequestQueue requestQueue;
     private ImageLoader imageLoader;
+    private LruBitmapCache bitmapCache;
+    private BitmapPool bitmapPool;
+    private ByteArrayPool bufferPool;
     private HttpStack mStack;
 
     private SmartMsVolleySingleton()
@@ -61,14 +75,19 @@ public class SmartMsVolleySingleton {
             mStack = new HurlStack();
         }
 
-        Network network = new BasicNetwork(mStack);
+        bufferPool = new ByteArrayPool(BasicNetwork.DEFAULT_POOL_SIZE);
+        Network network = new BasicNetwork(bufferPool, mStack);
 
         RequestQueue queue = new RequestQueue(4, responseDelivery, network);
         queue.start();
 
         requestQueue = queue;
 
-        imageLoader = new ImageLoader(requestQueue, new LruBitmapCache());
+        // Bitmaps discarded while decoding are reused by the next decodes.
+        bitmapPool = new BitmapPool(BitmapPool.getDefaultMaxSizeBytes());
+        ImageRequest.setBitmapPool(bitmapPool);
+        bitmapCache = LruBitmapCache.withMaxSizeBytes(LruBitmapCache.getDefaultLruCacheSizeBytes(), null);
+        imageLoader = new ImageLoader(requestQueue, bitmapCache);
     }
 
     @NonNull
@@ -97,6 +116,56 @@ public class SmartMsVolleySingleton {
         return imageLoader;
     }
 
+    /**
+     * Lets the bitmap cache and the bitmap pool shrink under memory pressure:
+     * they are halved on moderate pressure and emptied on critical pressure.
+     */
+    public void registerMemoryCallbacks(@NonNull Context context)
+    {
+        Context applicationContext = context.getApplicationContext();
+        applicationContext.registerComponentCallbacks(bitmapCache);
+        applicationContext.registerComponentCallbacks(bitmapPool);
+    }
+
+    /**
+     * Backs the image loader with a disk cache of original and pre-scaled
+     * images, so that images survive process restarts. Must be called from the
+     * main thread, preferably before the first image is requested.
+     */
+    public void enableImageDiskCache(@NonNull Context context)
+    {
+        File rootDirectory = new File(context.getCacheDir(), IMAGE_CACHE_DIR);
+        imageLoader.setDiskCache(new DiskBasedCache(rootDirectory, IMAGE_DISK_CACHE_SIZE_BYTES));
+    }
+
+    /**
+     * Sets the maximum size, in bytes, of the buffers retained to read
+     * response bodies. In adaptive mode, this bounds the adaptive size.
+     */
+    public void setBufferPoolSize(int sizeLimitBytes)
+    {
+        bufferPool.setSizeLimit(sizeLimitBytes);
+    }
+
+    /**
+     * Lets the buffer pool size itself from the sizes of the responses
+     * received, within its size limit.
+     */
+    public void setAdaptiveBufferPool(boolean adaptive)
+    {
+        bufferPool.setAdaptive(adaptive);
+    }
+
+    /**
+     * Returns the buffer pool of the network, e.g. to read its hit rate and
+     * the bytes it retains.
+     */
+    @NonNull
+    public ByteArrayPool getBufferPool()
+    {
+        return bufferPool;
+    }
+
     /**
      * Cancels all requests in this queue with the given tag. Tag must be
      * non-null
@@ -0,0 +1,269 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 11:56:41 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 11:56:41 +0200
+ */
+
+package com.streamwide.smartms.volley.api;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.BitmapFactory;
+import android.widget.ImageView.ScaleType;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.streamwide.smartms.volley.ParseError;
+import com.streamwide.smartms.volley.VolleyLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An image request decoding the response body straight from the connection.
+ *
+ * <p>
+ * The bounds are read from the first bytes of the stream, which is then
+ * rewound through a pooled mark/reset buffer and decoded once with the chosen
+ * sample size, without reusing a pooled bitmap: the compressed image never
+ * sits in the heap as a whole next to the bitmap, unless its headers are too
+ * long to rewind. As a stream can only be read once, a decode failing with an
+ * {@link OutOfMemoryError} is not retried and yields a
+ * {@link com.streamwide.smartms.volley.ParseError}.
+ * </p>
+ */
+public class StreamingImageRequest extends ImageRequest {
+
+    /**
+     * Bytes the bounds may be read from, kept to rewind the stream: room for
+     * camera JPEGs whose EXIF thumbnail, ICC profile and MPF data come well
+     * past 64KB ahead of the frame header. The buffer only grows as far as
+     * the decoder reads, usually a few KB. Images with longer headers are
+     * buffered whole and decoded like a regular {@link ImageRequest}.
+     */
+    private static final int BOUNDS_MARK_LIMIT = 512 * 1024;
+
+    /** Size of the chunks a body is buffered with. */
+    private static final int BUFFER_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Bytes kept to rewind the stream after looking for an EXIF thumbnail,
+     * which sits in the first segment of the image, at most 64KB long.
+     */
+    private static final int PREVIEW_MARK_LIMIT = 80 * 1024;
+
+    /**
+     * Creates a new streaming image request.
+     *
+     * @see ImageRequest#ImageRequest(String, Response.Listener, int, int, ScaleType, Config, Response.ErrorListener)
+     */
+    public StreamingImageRequest(@Nullable String url, @NonNull Response.Listener<Bitmap> listener, int maxWidth,
+                                 int maxHeight, @NonNull ScaleType scaleType, @NonNull Config decodeConfig,
+                                 @Nullable Response.ErrorListener errorListener)
+    {
+        super(url, listener, maxWidth, maxHeight, scaleType, decodeConfig, errorListener);
+    }
+
+    @Override
+    public boolean shouldStreamResponse()
+    {
+        return true;
+    }
+
+    @Override
+    @Nullable
+    public Response<Bitmap> parseNetworkResponse(@NonNull NetworkResponse response)
+    {
+        if (response.isStreamed() && !boundsFitMark(response)) {
+            try {
+                response = bufferBody(response);
+            } catch (IOException e) {
+                return Response.error(new ParseError(e));
+            }
+        }
+        return super.parseNetworkResponse(response);
+    }
+
+    /**
+     * Returns false if the bounds could not be read within
+     * {@link #BOUNDS_MARK_LIMIT}. The stream is rewound: reading the headers
+     * again from the mark buffer costs little next to the decode.
+     */
+    private boolean boundsFitMark(NetworkResponse response)
+    {
+        BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
+        boundsOptions.inJustDecodeBounds = true;
+        return decodeMarkedBounds(response.getDataStream(), boundsOptions);
+    }
+
+    /**
+     * Reads the bounds from at most {@link #BOUNDS_MARK_LIMIT} bytes of the
+     * given stream, then rewinds it.
+     *
+     * @return false if the bounds were not found before the limit
+     */
+    private boolean decodeMarkedBounds(InputStream in, BitmapFactory.Options decodeOptions)
+    {
+        in.mark(BOUNDS_MARK_LIMIT);
+        LimitedInputStream header = new LimitedInputStream(in, BOUNDS_MARK_LIMIT);
+        BitmapFactory.decodeStream(header, null, decodeOptions);
+        try {
+            in.reset();
+        } catch (IOException e) {
+            // The stream failed: the pixels cannot be read anymore.
+            VolleyLog.d("Could not rewind image stream, url=%s: %s", getUrl(), e.toString());
+            decodeOptions.outWidth = -1;
+            decodeOptions.outHeight = -1;
+            return true;
+        }
+        return decodeOptions.outWidth > 0 || !header.isExhausted();
+    }
+
+    /**
+     * Reads the rest of a streamed body into a regular response.
+     */
+    private static NetworkResponse bufferBody(NetworkResponse response) throws IOException
+    {
+        InputStream in = response.getDataStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BOUNDS_MARK_LIMIT * 2);
+        byte[] buffer = new byte[BUFFER_CHUNK_SIZE];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, count);
+        }
+        return new NetworkResponse(response.statusCode, bytes.toByteArray(), response.headers,
+                        response.notModified, response.networkTimeMs);
+    }
+
+    @Override
+    protected void decodeBounds(@NonNull NetworkResponse response, @NonNull BitmapFactory.Options decodeOptions)
+    {
+        if (!response.isStreamed()) {
+            super.decodeBounds(response, decodeOptions);
+            return;
+        }
+        decodeMarkedBounds(response.getDataStream(), decodeOptions);
+    }
+
+    /**
+     * Only previews images with an EXIF thumbnail: it is found in the first
+     * bytes of the stream, long before the rest of the image is received.
+     */
+    @Override
+    @Nullable
+    protected Bitmap decodePreview(@NonNull NetworkResponse response, int previewSampleSize)
+    {
+        if (!response.isStreamed()) {
+            return super.decodePreview(response, previewSampleSize);
+        }
+        InputStream in = response.getDataStream();
+        in.mark(PREVIEW_MARK_LIMIT);
+        Bitmap thumbnail = decodeExifThumbnail(in);
+        try {
+            in.reset();
+        } catch (IOException e) {
+            // Looking for the thumbnail went too far: the image is lost.
+            VolleyLog.d("Could not rewind image stream, url=%s: %s", getUrl(), e.toString());
+        }
+        return thumbnail;
+    }
+
+    @Override
+    @Nullable
+    protected Bitmap decodeBitmap(@NonNull NetworkResponse response, @NonNull BitmapFactory.Options decodeOptions)
+    {
+        if (!response.isStreamed()) {
+            return super.decodeBitmap(response, decodeOptions);
+        }
+        // Returns null once the stream was consumed by a previous attempt.
+        return BitmapFactory.decodeStream(response.getDataStream(), null, decodeOptions);
+    }
+
+    /**
+     * Reads up to a number of bytes of a stream, so that the decoder never
+     * reads past the mark limit, and tells whether it got there. Closing it
+     * leaves the stream open.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private int mRemaining;
+
+        LimitedInputStream(InputStream in, int limit)
+        {
+            super(in);
+            mRemaining = limit;
+        }
+
+        /**
+         * Returns true if all the allowed bytes were read.
+         */
+        boolean isExhausted()
+        {
+            return mRemaining == 0;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (mRemaining == 0) {
+                return -1;
+            }
+            int oneByte = in.read();
+            if (oneByte != -1) {
+                mRemaining--;
+            }
+            return oneByte;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int len) throws IOException
+        {
+            if (mRemaining == 0) {
+                return -1;
+            }
+            int count = in.read(buffer, offset, Math.min(len, mRemaining));
+            if (count > 0) {
+                mRemaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = in.skip(Math.min(n, mRemaining));
+            mRemaining -= (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return Math.min(in.available(), mRemaining);
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+            // The stream is still to be decoded.
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 10:14:08 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 10:14:08 +0200
+ */
+
+package com.streamwide.smartms.volley.api;
+
+import android.util.JsonReader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.streamwide.smartms.volley.ParseError;
+import com.streamwide.smartms.volley.api.Response.ErrorListener;
+import com.streamwide.smartms.volley.api.Response.Listener;
+import com.streamwide.smartms.volley.toolbox.HurlStack;
+import com.streamwide.smartms.volley.toolbox.JsonRequest;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * A request that parses its JSON response body as a stream of tokens.
+ *
+ * <p>
+ * Unlike {@link JsonObjectRequest}, the body is never decoded into an
+ * intermediate {@link String} nor into an {@code org.json} tree: the tokens
+ * are pulled from the response bytes by the supplied {@link JsonStreamParser}
+ * on the worker thread, which builds the result directly.
+ * </p>
+ *
+ * @param <T>
+ *            The type of the parsed response
+ */
+public class StreamingJsonRequest<T> extends JsonRequest<T> {
+
+    /**
+     * Pulls the tokens of a JSON document and builds the parsed result. Called
+     * from a worker thread.
+     */
+    public interface JsonStreamParser<T> {
+
+        /**
+         * Reads the whole JSON document from the given reader.
+         *
+         * @param reader
+         *            Reader positioned before the first token of the document
+         * @return The parsed result
+         * @throws IOException
+         *             If the document is malformed or cannot be read
+         */
+        @Nullable
+        public T parse(@NonNull JsonReader reader) throws IOException;
+    }
+
+    private final JsonStreamParser<T> mParser;
+
+    /**
+     * Creates a new request.
+     *
+     * @param method
+     *            the HTTP method to use
+     * @param url
+     *            URL to fetch the JSON from
+     * @param requestBody
+     *            A JSON string to post with the request. Null is allowed and
+     *            indicates no parameters will be posted along with request.
+     * @param parser
+     *            Parser pulling the response tokens into the result
+     * @param listener
+     *            Listener to receive the parsed response
+     * @param errorListener
+     *            Error listener, or null to ignore errors.
+     */
+    public StreamingJsonRequest(@NonNull String method, @Nullable String url, @Nullable String requestBody,
+                                @NonNull JsonStreamParser<T> parser, @NonNull Listener<T> listener,
+                                @Nullable ErrorListener errorListener)
+    {
+        super(method, url, requestBody, listener, errorListener);
+        mParser = parser;
+    }
+
+    /**
+     * Creates a new GET request.
+     *
+     * @see #StreamingJsonRequest(String, String, String, JsonStreamParser, Listener, ErrorListener)
+     */
+    public StreamingJsonRequest(@Nullable String url, @NonNull JsonStreamParser<T> parser, @NonNull Listener<T> listener,
+                                @Nullable ErrorListener errorListener)
+    {
+        this(HurlStack.HttpMethod.GET, url, null, parser, listener, errorListener);
+    }
+
+    @Override
+    @Nullable
+    public Response<T> parseNetworkResponse(@NonNull NetworkResponse response)
+    {
+        String charset = HttpHeaderParser.parseCharset(response.headers, PROTOCOL_CHARSET);
+        try (JsonReader reader = new JsonReader(new InputStreamReader(response.getDataStream(), charset))) {
+            return Response.success(mParser.parse(reader), HttpHeaderParser.parseCacheHeaders(response));
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // JsonReader reports unexpected tokens with IllegalStateException
+            // and malformed numbers with NumberFormatException.
+            return Response.error(new ParseError(e));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 10:31:45 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 10:31:45 +0200
+ */
+
+package com.streamwide.smartms.volley.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.streamwide.smartms.volley.api.Response.ErrorListener;
+import com.streamwide.smartms.volley.api.Response.Listener;
+import com.streamwide.smartms.volley.toolbox.HurlStack;
+
+/**
+ * A request delivering its JSON response already bound to a model type.
+ *
+ * <p>
+ * The binding runs on the worker thread through a {@link JsonBinder}, straight
+ * from the response tokens: no {@code org.json} tree is built and nothing is
+ * left to map on the main thread after delivery.
+ * </p>
+ *
+ * @param <T>
+ *            The model type of the response
+ */
+public class TypedJsonRequest<T> extends StreamingJsonRequest<T> {
+
+    /**
+     * Creates a new request bound with the given binder.
+     *
+     * @param method
+     *            the HTTP method to use
+     * @param url
+     *            URL to fetch the JSON from
+     * @param requestBody
+     *            A JSON string to post with the request. Null is allowed and
+     *            indicates no parameters will be posted along with request.
+     * @param binder
+     *            Binder producing the model object from the response
+     * @param listener
+     *            Listener to receive the model object
+     * @param errorListener
+     *            Error listener, or null to ignore errors.
+     */
+    public TypedJsonRequest(@NonNull String method, @Nullable String url, @Nullable String requestBody,
+                            @NonNull JsonBinder<T> binder, @NonNull Listener<T> listener,
+                            @Nullable ErrorListener errorListener)
+    {
+        super(method, url, requestBody, binder, listener, errorListener);
+    }
+
+    /**
+     * Creates a new request bound with the binder registered in
+     * {@link JsonBinders} for the given type.
+     *
+     * @throws IllegalArgumentException
+     *             if no binder is registered for {@code type}
+     */
+    public TypedJsonRequest(@NonNull String method, @Nullable String url, @Nullable String requestBody,
+                            @NonNull Class<T> type, @NonNull Listener<T> listener,
+                            @Nullable ErrorListener errorListener)
+    {
+        this(method, url, requestBody, requireBinder(type), listener, errorListener);
+    }
+
+    /**
+     * Creates a new GET request bound with the binder registered in
+     * {@link JsonBinders} for the given type.
+     *
+     * @throws IllegalArgumentException
+     *             if no binder is registered for {@code type}
+     */
+    public TypedJsonRequest(@Nullable String url, @NonNull Class<T> type, @NonNull Listener<T> listener,
+                            @Nullable ErrorListener errorListener)
+    {
+        this(HurlStack.HttpMethod.GET, url, null, type, listener, errorListener);
+    }
+
+    private static <T> JsonBinder<T> requireBinder(Class<T> type)
+    {
+        JsonBinder<T> binder = JsonBinders.get(type);
+        if (binder == null) {
+            throw new IllegalArgumentException("No JsonBinder registered for " + type.getName());
+        }
+        return binder;
+    }
+}
@@ -15,14 +15,19 @@
 
 package com.streamwide.smartms.volley.toolbox;
 
+import android.net.TrafficStats;
+import android.os.Process;
 import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.streamwide.smartms.volley.AuthFailureError;
+import com.streamwide.smartms.volley.CircuitOpenError;
+import com.streamwide.smartms.volley.DeferredRetryError;
 import com.streamwide.smartms.volley.Network;
 import com.streamwide.smartms.volley.NetworkError;
+import com.streamwide.smartms.volley.api.HttpHeaderParser;
 import com.streamwide.smartms.volley.api.NetworkResponse;
 import com.streamwide.smartms.volley.NoConnectionError;
 import com.streamwide.smartms.volley.api.Request;
@@ -39,14 +44,29 @@ import net.gotev.uploadservice.NameValue;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A network performing Volley requests over an {@link HttpStack}.
@@ -55,12 +75,56 @@ public class BasicNetwork implements Network {
 
     private static final int SLOW_REQUEST_THRESHOLD_MS = 3000;
 
-    private static final int DEFAULT_POOL_SIZE = 4096;
+    /** Default size of the buffer pool, enough to retain a few JSON bodies. */
+    public static final int DEFAULT_POOL_SIZE = 64 * 1024;
+
+    /** Longest back-off honored from a Retry-After header. */
+    private static final long MAX_RETRY_AFTER_MS = 60 * 1000;
+
+    /** Size of the buffer of streamed response bodies. */
+    static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    /** Latency percentile of a host after which a hedged request is sent again. */
+    private static final float HEDGE_PERCENTILE = 0.95f;
+
+    /** Share of the hedgeable requests to a host that may be sent twice. */
+    private static final float HEDGE_RATIO = 0.05f;
+
+    /** Hedges each host may send regardless of its traffic. */
+    private static final int HEDGE_MIN_PER_HOST = 2;
+
+    /**
+     * Threads running the attempts of hedged requests: two for each of the
+     * default four network threads. Past that, requests are not hedged.
+     */
+    private static final int MAX_HEDGE_THREADS = 8;
 
     protected final HttpStack mHttpStack;
 
     protected final ByteArrayPool mPool;
 
+    /** Breakers of the hosts requests are sent to, or null for none. */
+    private volatile CircuitBreaker mCircuitBreaker = new CircuitBreaker();
+
+    /** Budget shared by the retries of all requests, or null for none. */
+    private volatile RetryBudget mRetryBudget = new RetryBudget();
+
+    /**
+     * Map of host -> time, in {@link SystemClock#elapsedRealtime()}
+     * milliseconds, before which no request is sent to it, set when a host
+     * asks clients to back off.
+     */
+    private final ConcurrentHashMap<String, Long> mHostBackoffs = new ConcurrentHashMap<>();
+
+    /** Latencies of the successful requests to each host. */
+    private final HostLatencyTracker mLatencyTracker = new HostLatencyTracker();
+
+    /** Map of host -> budget bounding the hedges sent to it. */
+    private final ConcurrentHashMap<String, RetryBudget> mHedgeBudgets = new ConcurrentHashMap<>();
+
+    /** Runs the attempts of hedged requests, created on first use. */
+    private ExecutorService mHedgeExecutor;
+
     /**
      * @param httpStack
      *            HTTP stack to be used
@@ -85,12 +149,261 @@ public class BasicNetwork implements Network {
         mPool = pool;
     }
 
+    /**
+     * Returns the buffer pool used to read response bodies, e.g. to configure
+     * it or read its hit rate.
+     */
+    @NonNull
+    public ByteArrayPool getByteArrayPool()
+    {
+        return mPool;
+    }
+
+    /**
+     * Sets the per-host circuit breaker failing requests fast while their host
+     * keeps failing, or null to always send requests. A default breaker is
+     * set.
+     */
+    public void setCircuitBreaker(@Nullable CircuitBreaker circuitBreaker)
+    {
+        mCircuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Returns the per-host circuit breaker, e.g. to observe its transitions,
+     * or null if there is none.
+     */
+    @Nullable
+    public CircuitBreaker getCircuitBreaker()
+    {
+        return mCircuitBreaker;
+    }
+
+    /**
+     * Sets the budget bounding the retries of all requests, or null to only
+     * bound them by their retry policy. A default budget is set.
+     */
+    public void setRetryBudget(@Nullable RetryBudget retryBudget)
+    {
+        mRetryBudget = retryBudget;
+    }
+
+    /**
+     * Returns the latencies of the successful requests to each host, used to
+     * decide when to hedge a request.
+     */
+    @NonNull
+    public HostLatencyTracker getLatencyTracker()
+    {
+        return mLatencyTracker;
+    }
+
     @Override
     @NonNull
     public NetworkResponse performRequest(@NonNull Request<?> request) throws VolleyError
     {
         long requestStart = SystemClock.elapsedRealtime();
+        String host = request.getHost();
+        boolean firstAttempt = request.getRetryPolicy().getCurrentRetryCount() == 0
+                               && request.getNotBeforeTimeMs() == 0;
+        RetryBudget retryBudget = mRetryBudget;
+        if (retryBudget != null && firstAttempt) {
+            retryBudget.onFirstAttempt();
+        }
+        if (host != null && request.isHedged()) {
+            RetryBudget hedgeBudget = getHedgeBudget(host);
+            if (firstAttempt) {
+                hedgeBudget.onFirstAttempt();
+            }
+            long hedgeAfterMs = mLatencyTracker.getPercentileMs(host, HEDGE_PERCENTILE);
+            if (hedgeAfterMs >= 0) {
+                return performHedged(request, requestStart, hedgeAfterMs, hedgeBudget);
+            }
+        }
+        return performAttempts(request, requestStart, false);
+    }
+
+    /**
+     * Sends the given request, then sends it again if no response came after
+     * the given delay and the host's hedge budget allows it. The first
+     * successful response is returned and the other attempt is cancelled;
+     * its response, if any, is dropped.
+     */
+    private NetworkResponse performHedged(final Request<?> request, final long requestStart, long hedgeAfterMs,
+                                          RetryBudget hedgeBudget)
+        throws VolleyError
+    {
+        CompletionService<NetworkResponse> completionService = new ExecutorCompletionService<>(
+                        getHedgeExecutor());
+        Future<NetworkResponse> primary;
+        try {
+            primary = completionService.submit(newAttempt(request, requestStart, false));
+        } catch (RejectedExecutionException e) {
+            // All the hedge threads are busy: send it unhedged.
+            request.addMarker("hedge-rejected");
+            return performAttempts(request, requestStart, false);
+        }
+        Future<NetworkResponse> hedge = null;
+        try {
+            Future<NetworkResponse> done = completionService.poll(hedgeAfterMs, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                if (!hedgeBudget.tryRetry()) {
+                    request.addMarker("hedge-budget-exhausted");
+                    return getAttemptResult(primary);
+                }
+                try {
+                    hedge = completionService.submit(newAttempt(request, requestStart, true));
+                } catch (RejectedExecutionException e) {
+                    request.addMarker("hedge-rejected");
+                    return getAttemptResult(primary);
+                }
+                request.addMarker("hedge [after="+hedgeAfterMs+"]");
+                done = completionService.take();
+            }
+            VolleyError primaryError = null;
+            try {
+                NetworkResponse response = getAttemptResult(done);
+                if (done == hedge) {
+                    request.addMarker("hedge-won");
+                }
+                return response;
+            } catch (VolleyError e) {
+                if (hedge == null) {
+                    throw e;
+                }
+                if (done == primary) {
+                    primaryError = e;
+                }
+            }
+            // One attempt failed, the other one may still succeed.
+            try {
+                NetworkResponse response = getAttemptResult(completionService.take());
+                if (primaryError != null) {
+                    request.addMarker("hedge-won");
+                }
+                return response;
+            } catch (VolleyError e) {
+                // The primary attempt's error carries the retry state.
+                throw primaryError != null ? primaryError : e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VolleyError(e);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Returns a task sending the given request.
+     */
+    private Callable<NetworkResponse> newAttempt(final Request<?> request, final long requestStart,
+                                                 final boolean hedge)
+    {
+        return new Callable<NetworkResponse>() {
+
+            @Override
+            public NetworkResponse call() throws VolleyError
+            {
+                // Attempts run on pooled threads: tag each with its request.
+                TrafficStats.setThreadStatsTag(request.getTrafficStatsTag());
+                return performAttempts(request, requestStart, hedge);
+            }
+        };
+    }
+
+    /**
+     * Waits for the given attempt and returns its response, or throws its
+     * error.
+     */
+    private static NetworkResponse getAttemptResult(Future<NetworkResponse> attempt)
+        throws VolleyError, InterruptedException
+    {
+        try {
+            return attempt.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof VolleyError) {
+                throw (VolleyError) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new VolleyError(cause);
+        }
+    }
+
+    private RetryBudget getHedgeBudget(String host)
+    {
+        RetryBudget budget = mHedgeBudgets.get(host);
+        if (budget == null) {
+            RetryBudget created = new RetryBudget(HEDGE_RATIO, HEDGE_MIN_PER_HOST);
+            budget = mHedgeBudgets.putIfAbsent(host, created);
+            if (budget == null) {
+                budget = created;
+            }
+        }
+        return budget;
+    }
+
+    private synchronized ExecutorService getHedgeExecutor()
+    {
+        if (mHedgeExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            // No queue: an attempt waiting for a thread would only be late.
+            mHedgeExecutor = new ThreadPoolExecutor(0, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS,
+                            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable)
+                {
+                    return new Thread(new Runnable() {
+
+                        @Override
+                        public void run()
+                        {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "VolleyHedge-" + threadCount.incrementAndGet());
+                }
+            });
+        }
+        return mHedgeExecutor;
+    }
+
+    /**
+     * Sends the given request until it succeeds or may no longer be retried.
+     * A hedge is never retried, the first attempt keeps the retry policy to
+     * itself.
+     */
+    private NetworkResponse performAttempts(Request<?> request, long requestStart, boolean hedge)
+        throws VolleyError
+    {
+        String host = request.getHost();
+        CircuitBreaker circuitBreaker = host != null ? mCircuitBreaker : null;
         while (true) {
+            if (isAbandoned(null)) {
+                // E.g. the losing attempt of a hedged request, which only
+                // noticed now: the request was answered already.
+                request.addMarker("attempt-abandoned");
+                throw new VolleyError("Attempt abandoned");
+            }
+            long attemptStart = SystemClock.elapsedRealtime();
+            // Before the breaker, which may hand this attempt its only probe:
+            // a deferred attempt would never report back.
+            long backoffMs = getHostBackoffMs(host);
+            if (backoffMs > 0) {
+                request.addMarker("host-backoff [delay="+backoffMs+"]");
+                throw new DeferredRetryError(backoffMs);
+            }
+            if (circuitBreaker != null && !circuitBreaker.allowRequest(host)) {
+                request.addMarker("circuit-open");
+                throw new CircuitOpenError(host);
+            }
             VolleyHttpResponse httpResponse = null;
             byte[] responseContents = null;
             Map<String, String> responseHeaders = Collections.emptyMap();
@@ -100,15 +413,32 @@ public class BasicNetwork implements Network {
                 httpResponse = mHttpStack.performRequest(request, headers);
                 HttpResult httpResult = httpResponse.getHttpResult();
                 int statusCode = httpResult.getResponseCode();
+                if (circuitBreaker != null && !isAbandoned(null)) {
+                    if (statusCode >= 500) {
+                        circuitBreaker.onFailure(host);
+                    } else {
+                        circuitBreaker.onSuccess(host);
+                    }
+                }
 
                 responseHeaders = convertHeaders(httpResponse.getHeaders());
                 // Handle cache validation.
                 if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    recordLatency(host, attemptStart);
 
                     return new NetworkResponse(HttpURLConnection.HTTP_NOT_MODIFIED, null, responseHeaders, true,
                             SystemClock.elapsedRealtime() - requestStart);
                 }
 
+                // Let the parser read a successful body straight from the
+                // connection, if the request asks for it.
+                InputStream content = httpResponse.getEntity() != null ? httpResponse.getEntity().getContent() : null;
+                if (request.shouldStreamResponse() && content != null && statusCode >= 200 && statusCode <= 299) {
+                    return new NetworkResponse(statusCode,
+                                    new PoolingBufferedInputStream(mPool, content, STREAM_BUFFER_SIZE),
+                                    responseHeaders, SystemClock.elapsedRealtime() - requestStart);
+                }
+
                 // Some responses such as 204s do not have content. We must
                 // check.
                 if (httpResponse.getEntity() != null) {
@@ -126,10 +456,19 @@ public class BasicNetwork implements Network {
                 if (statusCode < 200 || statusCode > 299) {
                     throw new IOException();
                 }
+                recordLatency(host, attemptStart);
                 return new NetworkResponse(statusCode, responseContents, responseHeaders, false,
                                 SystemClock.elapsedRealtime() - requestStart);
             } catch (SocketTimeoutException e) {
-                attemptRetryOnException("socket", request, new TimeoutError());
+                if (circuitBreaker != null && !isAbandoned(e)) {
+                    circuitBreaker.onFailure(host);
+                }
+                if (!request.isIdempotent()) {
+                    // The server may have applied it already.
+                    request.addMarker("socket-retry-unsafe");
+                    throw new TimeoutError();
+                }
+                attemptRetryOnException("socket", request, new TimeoutError(), 0, hedge);
             } catch (MalformedURLException e) {
                 throw new RuntimeException("Bad URL " + request.getUrl(), e);
             } catch (IOException e) {
@@ -138,6 +477,9 @@ public class BasicNetwork implements Network {
                 if (httpResponse != null) {
                     statusCode = httpResponse.getHttpResult().getResponseCode();
                 } else {
+                    if (circuitBreaker != null && !isAbandoned(e)) {
+                        circuitBreaker.onFailure(host);
+                    }
                     throw new NoConnectionError(e);
                 }
 
@@ -147,7 +489,20 @@ public class BasicNetwork implements Network {
                                     SystemClock.elapsedRealtime() - requestStart);
                     if (statusCode == HttpURLConnection.HTTP_UNAUTHORIZED
                         || statusCode == HttpURLConnection.HTTP_FORBIDDEN) {
-                        attemptRetryOnException("auth", request, new AuthFailureError(networkResponse));
+                        attemptRetryOnException("auth", request, new AuthFailureError(networkResponse), 0, hedge);
+                    } else if (isRetryableStatus(statusCode)
+                               && (request.isIdempotent() || isUnprocessedStatus(statusCode))) {
+                        long retryAfterMs = HttpHeaderParser.parseRetryAfterMs(responseHeaders);
+                        if (retryAfterMs > MAX_RETRY_AFTER_MS) {
+                            // Longer than any caller would wait.
+                            backOffHost(host, MAX_RETRY_AFTER_MS);
+                            throw new ServerError(networkResponse);
+                        }
+                        if (retryAfterMs > 0) {
+                            backOffHost(host, retryAfterMs);
+                        }
+                        attemptRetryOnException("server", request, new ServerError(networkResponse), retryAfterMs,
+                                                hedge);
                     } else {
                         // Only throw ServerError for 5xx status codes.
                         throw new ServerError(networkResponse);
@@ -159,6 +514,31 @@ public class BasicNetwork implements Network {
         }
     }
 
+    /**
+     * Returns true if the attempt running on this thread was abandoned, like
+     * the losing attempt of a hedged request, interrupted when cancelled:
+     * its outcome says nothing about the host.
+     *
+     * @param e
+     *            The exception the attempt failed with, or null
+     */
+    private static boolean isAbandoned(@Nullable IOException e)
+    {
+        // A socket timeout is a genuine failure, not an interruption.
+        return Thread.currentThread().isInterrupted()
+               || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+    }
+
+    /**
+     * Records the latency of a successful attempt started at the given time.
+     */
+    private void recordLatency(@Nullable String host, long attemptStart)
+    {
+        if (host != null && !isAbandoned(null)) {
+            mLatencyTracker.record(host, SystemClock.elapsedRealtime() - attemptStart);
+        }
+    }
+
     /**
      * Logs requests that took over SLOW_REQUEST_THRESHOLD_MS to complete.
      */
@@ -174,14 +554,30 @@ public class BasicNetwork implements Network {
     /**
      * Attempts to prepare the request for a retry. If there are no more
      * attempts remaining in the
-     * request's retry policy, a timeout exception is thrown.
+     * request's retry policy, or in the retry budget, the given exception is
+     * thrown.
      * 
      * @param request
      *            The request to use.
+     * @param minRetryDelayMs
+     *            Least delay before the retry, e.g. the one asked by the
+     *            server.
+     * @param hedge
+     *            True if this is a hedge, which is never retried.
      */
-    private static void attemptRetryOnException(String logPrefix, Request<?> request, VolleyError exception)
+    private void attemptRetryOnException(String logPrefix, Request<?> request, VolleyError exception,
+                                         long minRetryDelayMs, boolean hedge)
         throws VolleyError
     {
+        if (hedge) {
+            request.addMarker(logPrefix+"-hedge-giveup");
+            throw exception;
+        }
+        if (isAbandoned(null)) {
+            // Leaves the retry policy and the budget to the attempt that won.
+            request.addMarker(logPrefix+"-retry-abandoned");
+            throw exception;
+        }
         RetryPolicy retryPolicy = request.getRetryPolicy();
         int oldTimeout = request.getTimeoutMs();
 
@@ -191,7 +587,83 @@ public class BasicNetwork implements Network {
             request.addMarker(logPrefix+"-timeout-giveup [timeout="+oldTimeout+"]");
             throw e;
         }
+        // Only attempts the policy allows draw from the shared budget.
+        RetryBudget retryBudget = mRetryBudget;
+        if (retryBudget != null && !retryBudget.tryRetry()) {
+            request.addMarker(logPrefix+"-retry-budget-exhausted [timeout="+oldTimeout+"]");
+            throw exception;
+        }
         request.addMarker(logPrefix+"-retry [timeout="+oldTimeout+"]");
+
+        long retryDelayMs = Math.max(retryPolicy.getRetryDelayMs(), minRetryDelayMs);
+        if (retryDelayMs > 0) {
+            // Wait in the queue rather than on this thread.
+            request.addMarker(logPrefix+"-retry-deferred [delay="+retryDelayMs+"]");
+            throw new DeferredRetryError(exception, retryDelayMs);
+        }
+    }
+
+    /**
+     * Returns true for the statuses of transient server conditions: request
+     * timeout, too many requests, bad gateway, service unavailable and
+     * gateway timeout.
+     */
+    private static boolean isRetryableStatus(int statusCode)
+    {
+        switch (statusCode) {
+            case HttpURLConnection.HTTP_CLIENT_TIMEOUT:
+            case 429:
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns true for the retryable statuses telling that the server did not
+     * process the request, which makes even non-idempotent requests safe to
+     * retry. A bad gateway or gateway timeout may come after the origin
+     * server processed it.
+     */
+    private static boolean isUnprocessedStatus(int statusCode)
+    {
+        return statusCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT || statusCode == 429
+               || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    /**
+     * Holds back the requests to the given host for the given delay.
+     */
+    private void backOffHost(@Nullable String host, long delayMs)
+    {
+        if (host == null) {
+            return;
+        }
+        long until = SystemClock.elapsedRealtime() + delayMs;
+        Long previous = mHostBackoffs.get(host);
+        if (previous == null || previous < until) {
+            mHostBackoffs.put(host, until);
+        }
+    }
+
+    /**
+     * Returns how long requests to the given host are still held back, or 0.
+     */
+    private long getHostBackoffMs(@Nullable String host)
+    {
+        Long until = host != null ? mHostBackoffs.get(host) : null;
+        if (until == null) {
+            return 0;
+        }
+        long remainingMs = until - SystemClock.elapsedRealtime();
+        if (remainingMs <= 0) {
+            mHostBackoffs.remove(host, until);
+            return 0;
+        }
+        return remainingMs;
     }
 
     protected void logError(@Nullable String what, @Nullable String url, long start)
@@ -200,25 +672,54 @@ public class BasicNetwork implements Network {
         VolleyLog.d("HTTP ERROR(%s) %d ms to fetch %s", what, (now - start), url);
     }
 
-    /** Reads the contents of VolleyHttpEntity into a byte[]. */
+    /**
+     * Reads the contents of VolleyHttpEntity into a byte[]. A body of known
+     * length is read straight into an array of that length; otherwise it is
+     * read into pooled segments, assembled once at the end. Only the sizes of
+     * the latter are recorded to size the pool.
+     * <p>
+     * That one copy stays: {@link NetworkResponse#data} is a public byte[]
+     * read as a whole by the parsers and stored by the cache, so segments
+     * cannot be handed over in its place. Requests reading large bodies of
+     * unknown length without any copy should stream them, see
+     * {@link Request#shouldStreamResponse()}.
+     */
     private byte[] entityToBytes(VolleyHttpEntity entity) throws IOException, ServerError
     {
-        PoolingByteArrayOutputStream bytes = new PoolingByteArrayOutputStream(mPool, (int) entity.getContentLength());
-        byte[] buffer = null;
-        try {
-            InputStream in = entity.getContent();
-            if (in == null) {
-                throw new ServerError();
-            }
-            buffer = mPool.getBuf(1024);
-            int count;
-            while ((count = in.read(buffer)) != -1) {
-                bytes.write(buffer, 0, count);
+        InputStream in = entity.getContent();
+        if (in == null) {
+            throw new ServerError();
+        }
+        int contentLength = entity.getContentLength();
+        if (contentLength < 0) {
+            try (SegmentedByteArrayOutputStream bytes = new SegmentedByteArrayOutputStream(mPool)) {
+                bytes.readFrom(in);
+                mPool.recordResponseSize(bytes.size());
+                return bytes.toByteArray();
             }
+        }
+
+        byte[] data = new byte[contentLength];
+        int offset = 0;
+        int count;
+        while (offset < contentLength && (count = in.read(data, offset, contentLength - offset)) != -1) {
+            offset += count;
+        }
+        if (offset < contentLength) {
+            // Shorter than announced.
+            return Arrays.copyOf(data, offset);
+        }
+        int next = in.read();
+        if (next == -1) {
+            return data;
+        }
+        // Longer than announced: the rest goes after the bytes read so far.
+        try (SegmentedByteArrayOutputStream bytes = new SegmentedByteArrayOutputStream(mPool)) {
+            bytes.write(data, 0, contentLength);
+            bytes.write(next);
+            bytes.readFrom(in);
+            mPool.recordResponseSize(bytes.size());
             return bytes.toByteArray();
-        } finally {
-            mPool.returnBuf(buffer);
-            bytes.close();
         }
     }
 
@@ -0,0 +1,205 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 12:05:33 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 12:05:33 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A pool of mutable bitmaps, bucketed by allocation size, to be reused as
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} when decoding
+ * images instead of allocating a fresh bitmap for every decode.
+ * <p>
+ * A pooled bitmap can be reused for any decode whose result fits in its
+ * allocation, whatever its dimensions or config. To avoid wasting large
+ * bitmaps on small decodes, a bitmap is only handed out for decodes needing at
+ * least a quarter of its allocation.
+ * <p>
+ * The total allocation size of the pooled bitmaps never exceeds a byte limit;
+ * when a bitmap would exceed it, least-recently-pooled bitmaps are dropped.
+ * <p>
+ * Only bitmaps which are not referenced anywhere else (not displayed, not in a
+ * cache) may be put in the pool, as their pixels will be overwritten.
+ * <p>
+ * Registered with {@link android.content.Context#registerComponentCallbacks},
+ * the pool is halved on moderate memory pressure and emptied on critical
+ * pressure.
+ */
+public class BitmapPool implements ComponentCallbacks2 {
+
+    /** Fraction of the maximum heap used as the default pool size. */
+    private static final int DEFAULT_SIZE_HEAP_DIVISOR = 16;
+
+    /**
+     * Largest ratio between the allocation of a pooled bitmap and the size of
+     * the decode it is reused for.
+     */
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    /** The pooled bitmaps, by allocation size. */
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> mBitmapsBySize = new TreeMap<>();
+
+    /** The pooled bitmaps, from least to most recently pooled. */
+    private final LinkedHashSet<Bitmap> mBitmapsByLastUse = new LinkedHashSet<>();
+
+    /** The maximum total allocation size of the pooled bitmaps. */
+    private final long mMaxSizeBytes;
+
+    /** The total allocation size of the pooled bitmaps. */
+    private long mCurrentSizeBytes = 0;
+
+    /**
+     * Returns the default pool size: a sixteenth of the maximum heap size.
+     */
+    public static long getDefaultMaxSizeBytes()
+    {
+        return Runtime.getRuntime().maxMemory() / DEFAULT_SIZE_HEAP_DIVISOR;
+    }
+
+    /**
+     * @param maxSizeBytes
+     *            the maximum total allocation size of the pooled bitmaps
+     */
+    public BitmapPool(long maxSizeBytes)
+    {
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Returns a pooled bitmap able to hold a decode of the given dimensions and
+     * config, or null if there is none. The returned bitmap is removed from the
+     * pool.
+     */
+    @Nullable
+    public synchronized Bitmap get(int width, int height, @NonNull Bitmap.Config config)
+    {
+        long neededBytes = (long) width * height * ImageDecodeScheduler.getBytesPerPixel(config);
+        if (neededBytes <= 0 || neededBytes > Integer.MAX_VALUE) {
+            return null;
+        }
+        Map.Entry<Integer, ArrayDeque<Bitmap>> bucket = mBitmapsBySize.ceilingEntry((int) neededBytes);
+        if (bucket == null || bucket.getKey() > neededBytes * MAX_SIZE_MULTIPLE) {
+            return null;
+        }
+        Bitmap bitmap = bucket.getValue().pollLast();
+        if (bucket.getValue().isEmpty()) {
+            mBitmapsBySize.remove(bucket.getKey());
+        }
+        mBitmapsByLastUse.remove(bitmap);
+        mCurrentSizeBytes -= bucket.getKey();
+        return bitmap;
+    }
+
+    /**
+     * Puts a bitmap in the pool, dropping the least recently pooled bitmaps if
+     * the pool would exceed its size. Bitmaps which cannot be reused for
+     * decoding (immutable or recycled) are ignored.
+     *
+     * @param bitmap
+     *            a bitmap no longer referenced anywhere else
+     */
+    public synchronized void put(@Nullable Bitmap bitmap)
+    {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+            || bitmap.getAllocationByteCount() > mMaxSizeBytes || mBitmapsByLastUse.contains(bitmap)) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        ArrayDeque<Bitmap> bitmaps = mBitmapsBySize.get(size);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            mBitmapsBySize.put(size, bitmaps);
+        }
+        bitmaps.addLast(bitmap);
+        mBitmapsByLastUse.add(bitmap);
+        mCurrentSizeBytes += size;
+        trimToSize(mMaxSizeBytes);
+    }
+
+    /**
+     * Drops the least recently pooled bitmaps until the pool is under the given
+     * size.
+     */
+    public synchronized void trimToSize(long maxSizeBytes)
+    {
+        Iterator<Bitmap> iterator = mBitmapsByLastUse.iterator();
+        while (mCurrentSizeBytes > maxSizeBytes && iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            iterator.remove();
+            int size = bitmap.getAllocationByteCount();
+            ArrayDeque<Bitmap> bitmaps = mBitmapsBySize.get(size);
+            bitmaps.remove(bitmap);
+            if (bitmaps.isEmpty()) {
+                mBitmapsBySize.remove(size);
+            }
+            mCurrentSizeBytes -= size;
+        }
+    }
+
+    /**
+     * Drops all the pooled bitmaps.
+     */
+    public synchronized void clear()
+    {
+        mBitmapsBySize.clear();
+        mBitmapsByLastUse.clear();
+        mCurrentSizeBytes = 0;
+    }
+
+    /** Returns the total allocation size of the pooled bitmaps. */
+    public synchronized long getCurrentSizeBytes()
+    {
+        return mCurrentSizeBytes;
+    }
+
+    /** Returns the maximum total allocation size of the pooled bitmaps. */
+    public long getMaxSizeBytes()
+    {
+        return mMaxSizeBytes;
+    }
+
+    @Override
+    public void onTrimMemory(int level)
+    {
+        if (level >= TRIM_MEMORY_COMPLETE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            trimToSize(mMaxSizeBytes / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory()
+    {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig)
+    {
+        // do nothing...
+    }
+}
@@ -17,11 +17,11 @@ package com.streamwide.smartms.volley.toolbox;
 
 import androidx.annotation.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * ByteArrayPool is a source and repository of <code>byte[]</code> objects. Its
@@ -48,6 +48,11 @@ import java.util.List;
  * requested size. The caller needs to be able to gracefully deal with getting
  * buffers any size over the minimum.
  * <p>
+ * Buffers are kept in power-of-two size classes, each a lock-free stack, so
+ * that getting and returning a buffer take constant time and never block the
+ * other threads. A class holds the buffers at least as long as its size, and
+ * new buffers are allocated at the size of their class.
+ * <p>
  * If there is not a suitably-sized buffer in its recycling pool when a buffer
  * is requested, this class will allocate a new buffer and return it.
  * <p>
@@ -58,26 +63,75 @@ import java.util.List;
  * references to it.
  * <p>
  * This class ensures that the total size of the buffers in its recycling pool
- * never exceeds a certain byte limit. When a buffer is returned that would
- * cause the pool to exceed the limit, least-recently-used buffers are disposed.
+ * never exceeds a certain byte limit for long. When a buffer is returned that
+ * would cause the pool to exceed the limit, the least recently returned
+ * buffers of the largest size classes are disposed.
+ * <p>
+ * In adaptive mode, see {@link #setAdaptive(boolean)}, the pool retains no
+ * more than what the response sizes recorded through
+ * {@link #recordResponseSize(int)} call for, within its size limit.
  */
 public class ByteArrayPool {
 
-    /** The buffer pool, arranged both by last use and by buffer size */
-    private List<byte[]> mBuffersByLastUse = new LinkedList<>();
-    private List<byte[]> mBuffersBySize = new ArrayList<>(64);
+    /** One size class per power of two an array length can reach. */
+    private static final int SIZE_CLASS_COUNT = 31;
+
+    /**
+     * The buffer pool, by size class: class n holds the buffers of at least
+     * 2^n bytes, most recently returned first.
+     */
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedDeque<byte[]>[] mBuffersByClass = new ConcurrentLinkedDeque[SIZE_CLASS_COUNT];
 
     /** The total size of the buffers in the pool */
-    private int mCurrentSize = 0;
+    private final AtomicInteger mCurrentSize = new AtomicInteger();
+
+    /** Number of buffers served from the pool. */
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    /** Number of buffers allocated for lack of a pooled one. */
+    private final AtomicLong mMissCount = new AtomicLong();
 
     /**
      * The maximum aggregate size of the buffers in the pool. Old buffers are
      * discarded to stay
      * under this limit.
      */
-    private final int mSizeLimit;
+    private volatile int mSizeLimit;
+
+    /** The configured size limit, which bounds the adaptive one. */
+    private volatile int mMaxSizeLimit;
+
+    /** True to size the pool from the recorded response sizes. */
+    private volatile boolean mAdaptive;
+
+    /** Number of recorded responses by size class, halved on each resize. */
+    private final AtomicLongArray mResponseSizeHistogram = new AtomicLongArray(SIZE_CLASS_COUNT);
+
+    /** Number of responses recorded since the last resize. */
+    private final AtomicInteger mResponsesSinceResize = new AtomicInteger();
+
+    /** Number of recorded responses between two adaptive resizes. */
+    private static final int RESIZE_INTERVAL = 64;
 
-    /** Compares buffers by size */
+    /** Share of the recorded responses the adaptive pool is sized for. */
+    private static final float ADAPTIVE_PERCENTILE = 0.9f;
+
+    /**
+     * Network threads the adaptive pool retains buffers for: the default four
+     * of a request queue. Each reads a body either into segments of
+     * {@link SegmentedByteArrayOutputStream#DEFAULT_SEGMENT_SIZE} or through
+     * a stream buffer of {@link BasicNetwork#STREAM_BUFFER_SIZE}.
+     */
+    private static final int ADAPTIVE_THREAD_COUNT = 4;
+
+    /**
+     * Compares buffers by size
+     *
+     * @deprecated Buffers are no longer kept sorted, they are grouped by size
+     *             class.
+     */
+    @Deprecated
     protected static final Comparator<byte[]> BUF_COMPARATOR = new Comparator<byte[]>() {
 
         @Override
@@ -91,9 +145,13 @@ public class ByteArrayPool {
      * @param sizeLimit
      *            the maximum size of the pool, in bytes
      */
-    ByteArrayPool(int sizeLimit)
+    public ByteArrayPool(int sizeLimit)
     {
         mSizeLimit = sizeLimit;
+        mMaxSizeLimit = sizeLimit;
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            mBuffersByClass[i] = new ConcurrentLinkedDeque<>();
+        }
     }
 
     /**
@@ -107,18 +165,22 @@ public class ByteArrayPool {
      *            larger.
      * @return a byte[] buffer is always returned.
      */
-    synchronized byte[] getBuf(int len)
+    byte[] getBuf(int len)
     {
-        for (int i = 0; i < mBuffersBySize.size(); i++) {
-            byte[] buf = mBuffersBySize.get(i);
-            if (buf.length >= len) {
-                mCurrentSize -= buf.length;
-                mBuffersBySize.remove(i);
-                mBuffersByLastUse.remove(buf);
+        int sizeClass = ceilSizeClass(len);
+        if (sizeClass < SIZE_CLASS_COUNT) {
+            byte[] buf = mBuffersByClass[sizeClass].pollFirst();
+            if (buf != null) {
+                mCurrentSize.addAndGet(-buf.length);
+                mHitCount.incrementAndGet();
                 return buf;
             }
         }
-        return new byte[len];
+        mMissCount.incrementAndGet();
+        // Allocated at the size of its class, to fit any later request of
+        // that class; buffers too large to ever be pooled keep their size.
+        int classSize = sizeClass < SIZE_CLASS_COUNT ? 1 << sizeClass : len;
+        return new byte[classSize <= mSizeLimit ? classSize : len];
     }
 
     /**
@@ -129,31 +191,178 @@ public class ByteArrayPool {
      * @param buf
      *            the buffer to return to the pool.
      */
-    public synchronized void returnBuf(@Nullable byte[] buf)
+    public void returnBuf(@Nullable byte[] buf)
     {
-        if (buf == null || buf.length > mSizeLimit) {
+        if (buf == null || buf.length == 0 || buf.length > mSizeLimit) {
             return;
         }
-        mBuffersByLastUse.add(buf);
-        int pos = Collections.binarySearch(mBuffersBySize, buf, BUF_COMPARATOR);
-        if (pos < 0) {
-            pos = -pos - 1;
+        mBuffersByClass[floorSizeClass(buf.length)].offerFirst(buf);
+        if (mCurrentSize.addAndGet(buf.length) > mSizeLimit) {
+            trim();
+        }
+    }
+
+    /**
+     * Removes buffers from the pool until it is under its size limit, largest
+     * size classes first, as they free the most memory per buffer.
+     */
+    private void trim()
+    {
+        for (int sizeClass = SIZE_CLASS_COUNT - 1; sizeClass >= 0 && mCurrentSize.get() > mSizeLimit;) {
+            byte[] buf = mBuffersByClass[sizeClass].pollLast();
+            if (buf == null) {
+                sizeClass--;
+            } else {
+                mCurrentSize.addAndGet(-buf.length);
+            }
         }
-        mBuffersBySize.add(pos, buf);
-        mCurrentSize += buf.length;
+    }
+
+    /**
+     * Sets the maximum size of the pool, in bytes, discarding buffers if it
+     * now exceeds it. In adaptive mode, this bounds the adaptive size.
+     */
+    public void setSizeLimit(int sizeLimit)
+    {
+        mMaxSizeLimit = sizeLimit;
+        mSizeLimit = mAdaptive ? Math.min(mSizeLimit, sizeLimit) : sizeLimit;
         trim();
     }
 
     /**
-     * Removes buffers from the pool until it is under its size limit.
+     * Enables or disables adaptive mode, disabled by default. In adaptive
+     * mode, the pool retains, for each network thread, the segments holding a
+     * response at the 90th percentile of the recorded sizes, and a stream
+     * buffer; it follows that size as responses change.
      */
-    private synchronized void trim()
+    public void setAdaptive(boolean adaptive)
     {
-        while (mCurrentSize > mSizeLimit) {
-            byte[] buf = mBuffersByLastUse.remove(0);
-            mBuffersBySize.remove(buf);
-            mCurrentSize -= buf.length;
+        mAdaptive = adaptive;
+        if (!adaptive) {
+            mSizeLimit = mMaxSizeLimit;
         }
     }
 
+    /**
+     * Records the size of a response body read through the pool, used to size
+     * the pool in adaptive mode.
+     *
+     * @param size
+     *            the size of the response body, in bytes
+     */
+    public void recordResponseSize(int size)
+    {
+        mResponseSizeHistogram.incrementAndGet(ceilSizeClass(size));
+        if (mResponsesSinceResize.incrementAndGet() >= RESIZE_INTERVAL) {
+            mResponsesSinceResize.set(0);
+            if (mAdaptive) {
+                resize();
+            }
+        }
+    }
+
+    /**
+     * Sizes the pool from the response size histogram, then halves the
+     * histogram so that older responses weigh less in the next resize.
+     */
+    private void resize()
+    {
+        long total = 0;
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            total += mResponseSizeHistogram.get(i);
+        }
+        long threshold = (long) Math.ceil(total * ADAPTIVE_PERCENTILE);
+        long count = 0;
+        int sizeClass = 0;
+        while (sizeClass < SIZE_CLASS_COUNT - 1 && (count += mResponseSizeHistogram.get(sizeClass)) < threshold) {
+            sizeClass++;
+        }
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            long halved = mResponseSizeHistogram.get(i) / 2;
+            mResponseSizeHistogram.set(i, halved);
+        }
+        // Responses are read into whole segments: at least one per thread.
+        int segmentSize = SegmentedByteArrayOutputStream.DEFAULT_SEGMENT_SIZE;
+        long segmentCount = Math.max(1, ((1L << sizeClass) + segmentSize - 1) / segmentSize);
+        long adaptiveLimit = ADAPTIVE_THREAD_COUNT * (segmentCount * segmentSize + BasicNetwork.STREAM_BUFFER_SIZE);
+        mSizeLimit = (int) Math.min(adaptiveLimit, mMaxSizeLimit);
+        trim();
+    }
+
+    /**
+     * Returns the size class of the buffers able to hold the given length.
+     */
+    private static int ceilSizeClass(int len)
+    {
+        return len <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(len - 1);
+    }
+
+    /**
+     * Returns the size class a buffer of the given positive length belongs to.
+     */
+    private static int floorSizeClass(int length)
+    {
+        return 31 - Integer.numberOfLeadingZeros(length);
+    }
+
+    /**
+     * Returns the number of buffers served from the pool.
+     */
+    public long getHitCount()
+    {
+        return mHitCount.get();
+    }
+
+    /**
+     * Returns the number of buffers allocated because the pool had none of the
+     * requested size.
+     */
+    public long getMissCount()
+    {
+        return mMissCount.get();
+    }
+
+    /**
+     * Returns the share of the requested buffers served from the pool, between
+     * 0 and 1.
+     */
+    public float getHitRate()
+    {
+        long hits = mHitCount.get();
+        long requests = hits + mMissCount.get();
+        return requests == 0 ? 0f : (float) hits / requests;
+    }
+
+    /**
+     * Returns the total size of the buffers retained by the pool, in bytes.
+     */
+    public int getCurrentSizeBytes()
+    {
+        return mCurrentSize.get();
+    }
+
+    /**
+     * Returns the maximum size of the pool, in bytes, as currently sized in
+     * adaptive mode.
+     */
+    public int getSizeLimit()
+    {
+        return mSizeLimit;
+    }
+
+    /**
+     * Returns the configured maximum size of the pool, in bytes.
+     */
+    public int getMaxSizeLimit()
+    {
+        return mMaxSizeLimit;
+    }
+
+    /**
+     * Returns true if the pool is sized from the recorded response sizes.
+     */
+    public boolean isAdaptive()
+    {
+        return mAdaptive;
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 15:33:52 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 15:33:52 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host circuit breaker. A host is {@link State#CLOSED} while it answers;
+ * after a number of consecutive failures its breaker opens, and requests to it
+ * fail fast for a while. The breaker then goes {@link State#HALF_OPEN}: a
+ * single probe request is let through, which closes the breaker if it
+ * succeeds and opens it again if it fails.
+ */
+public class CircuitBreaker {
+
+    /** The default number of consecutive failures opening a breaker. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /** The default time a breaker stays open, in milliseconds. */
+    public static final long DEFAULT_OPEN_DURATION_MS = 30 * 1000;
+
+    /** States of the breaker of a host. */
+    public enum State {
+        /** Requests go through. */
+        CLOSED,
+        /** Requests fail fast. */
+        OPEN,
+        /** A single probe request goes through. */
+        HALF_OPEN
+    }
+
+    /** Listener of the state transitions of the breakers. */
+    public interface StateListener {
+
+        /**
+         * Called when the breaker of a host changes state, on the thread of
+         * the request causing the change.
+         */
+        public void onStateChanged(@NonNull String host, @NonNull State from, @NonNull State to);
+    }
+
+    private final int mFailureThreshold;
+
+    private final long mOpenDurationMs;
+
+    private final ConcurrentHashMap<String, HostState> mHostStates = new ConcurrentHashMap<>();
+
+    private volatile StateListener mStateListener;
+
+    /**
+     * Creates a circuit breaker with the default threshold and open duration.
+     */
+    public CircuitBreaker()
+    {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MS);
+    }
+
+    /**
+     * @param failureThreshold
+     *            Number of consecutive failures opening the breaker of a host
+     * @param openDurationMs
+     *            Time the breaker of a host stays open before letting a probe
+     *            request through
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMs)
+    {
+        mFailureThreshold = failureThreshold;
+        mOpenDurationMs = openDurationMs;
+    }
+
+    /**
+     * Sets the listener of the state transitions, or null for none.
+     */
+    public void setStateListener(@Nullable StateListener stateListener)
+    {
+        mStateListener = stateListener;
+    }
+
+    /**
+     * Returns the state of the breaker of the given host.
+     */
+    @NonNull
+    public State getState(@NonNull String host)
+    {
+        HostState hostState = mHostStates.get(host);
+        if (hostState == null) {
+            return State.CLOSED;
+        }
+        synchronized (hostState) {
+            return hostState.mState;
+        }
+    }
+
+    /**
+     * Returns true if a request to the given host may be sent. When the open
+     * duration is over, lets the first caller through as the probe.
+     */
+    public boolean allowRequest(@NonNull String host)
+    {
+        HostState hostState = mHostStates.get(host);
+        if (hostState == null) {
+            return true;
+        }
+        synchronized (hostState) {
+            switch (hostState.mState) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (SystemClock.elapsedRealtime() - hostState.mOpenedTimeMs < mOpenDurationMs) {
+                        return false;
+                    }
+                    setState(host, hostState, State.HALF_OPEN);
+                    hostState.mProbing = true;
+                    hostState.mProbeTimeMs = SystemClock.elapsedRealtime();
+                    return true;
+                default:
+                    // A probe that never reported back is replaced after the
+                    // open duration.
+                    if (hostState.mProbing
+                        && SystemClock.elapsedRealtime() - hostState.mProbeTimeMs < mOpenDurationMs) {
+                        return false;
+                    }
+                    hostState.mProbing = true;
+                    hostState.mProbeTimeMs = SystemClock.elapsedRealtime();
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Records a request to the given host that got an answer.
+     */
+    public void onSuccess(@NonNull String host)
+    {
+        HostState hostState = mHostStates.get(host);
+        if (hostState == null) {
+            return;
+        }
+        synchronized (hostState) {
+            hostState.mFailureCount = 0;
+            hostState.mProbing = false;
+            setState(host, hostState, State.CLOSED);
+        }
+    }
+
+    /**
+     * Records a request to the given host that failed: no connection, a
+     * timeout or a server error.
+     */
+    public void onFailure(@NonNull String host)
+    {
+        HostState hostState = mHostStates.get(host);
+        if (hostState == null) {
+            HostState created = new HostState();
+            hostState = mHostStates.putIfAbsent(host, created);
+            if (hostState == null) {
+                hostState = created;
+            }
+        }
+        synchronized (hostState) {
+            hostState.mFailureCount++;
+            hostState.mProbing = false;
+            if (hostState.mState == State.HALF_OPEN || hostState.mFailureCount >= mFailureThreshold) {
+                hostState.mOpenedTimeMs = SystemClock.elapsedRealtime();
+                setState(host, hostState, State.OPEN);
+            }
+        }
+    }
+
+    private void setState(String host, HostState hostState, State state)
+    {
+        State previous = hostState.mState;
+        if (previous == state) {
+            return;
+        }
+        hostState.mState = state;
+        StateListener stateListener = mStateListener;
+        if (stateListener != null) {
+            stateListener.onStateChanged(host, previous, state);
+        }
+    }
+
+    /**
+     * Breaker of a host, guarded by its own monitor.
+     */
+    private static class HostState {
+
+        State mState = State.CLOSED;
+
+        int mFailureCount;
+
+        long mOpenedTimeMs;
+
+        /** True while the probe request of a half-open breaker is pending. */
+        boolean mProbing;
+
+        long mProbeTimeMs;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 14:52:06 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 14:52:06 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct {@link ByteBuffer}s, the off-heap counterpart of
+ * {@link ByteArrayPool} for channel I/O. A channel reading into or writing
+ * from a heap buffer goes through a temporary direct buffer; reading into or
+ * writing from a pooled direct buffer avoids that copy, and allocating direct
+ * buffers, which is slow and only freed by the garbage collector.
+ * <p>
+ * Buffers come in power-of-two size classes from 4KB to 1MB, each a lock-free
+ * stack. Larger buffers are allocated on each request and never pooled.
+ * <p>
+ * Unlike byte[] buffers, every buffer acquired must be released: the pool
+ * counts the buffers acquired and not released yet, so that leaks can be
+ * detected, see {@link #getOutstandingCount()}.
+ */
+public class DirectByteBufferPool {
+
+    /** Size class of the smallest buffers, 4KB. */
+    private static final int MIN_SIZE_CLASS = 12;
+
+    /** Size class of the largest pooled buffers, 1MB. */
+    private static final int MAX_SIZE_CLASS = 20;
+
+    /** The buffer pool, by size class, most recently released first. */
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedDeque<ByteBuffer>[] mBuffersByClass =
+                    new ConcurrentLinkedDeque[MAX_SIZE_CLASS - MIN_SIZE_CLASS + 1];
+
+    /** The total capacity of the buffers in the pool. */
+    private final AtomicInteger mCurrentSize = new AtomicInteger();
+
+    /** Number of buffers acquired and not released yet. */
+    private final AtomicInteger mOutstandingCount = new AtomicInteger();
+
+    /** Number of buffers served from the pool. */
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    /** Number of buffers allocated for lack of a pooled one. */
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    /** The maximum total capacity of the buffers in the pool. */
+    private final int mSizeLimit;
+
+    /**
+     * @param sizeLimit
+     *            the maximum total capacity of the buffers in the pool, in
+     *            bytes
+     */
+    public DirectByteBufferPool(int sizeLimit)
+    {
+        mSizeLimit = sizeLimit;
+        for (int i = 0; i < mBuffersByClass.length; i++) {
+            mBuffersByClass[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    /**
+     * Returns the largest capacity of the buffers kept by the pool. Larger
+     * buffers are allocated on each request.
+     */
+    public static int getMaxPooledCapacity()
+    {
+        return 1 << MAX_SIZE_CLASS;
+    }
+
+    /**
+     * Returns the maximum total capacity of the buffers in the pool, in bytes.
+     */
+    public int getSizeLimit()
+    {
+        return mSizeLimit;
+    }
+
+    /**
+     * Returns true if the buffer acquired for the given capacity can be kept
+     * once released: its capacity, rounded up to its size class, fits both
+     * the largest class and the size limit. Other buffers are allocated on
+     * each request and left to the garbage collector.
+     */
+    public boolean isPoolable(int minCapacity)
+    {
+        int sizeClass = getSizeClass(minCapacity);
+        return sizeClass <= MAX_SIZE_CLASS && 1 << sizeClass <= mSizeLimit;
+    }
+
+    /**
+     * Returns the size class of the buffers able to hold the given capacity.
+     */
+    private static int getSizeClass(int minCapacity)
+    {
+        int ceilSizeClass = minCapacity <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(minCapacity - 1);
+        return Math.max(MIN_SIZE_CLASS, ceilSizeClass);
+    }
+
+    /**
+     * Returns a direct buffer from the pool if one is available in the
+     * requested size, or allocates a new one. The buffer is positioned at zero
+     * with its limit set to the requested capacity; its actual capacity may be
+     * larger. It must be given back with {@link #release(ByteBuffer)}.
+     *
+     * @param minCapacity
+     *            the minimum capacity, in bytes, of the requested buffer
+     */
+    @NonNull
+    public ByteBuffer acquire(int minCapacity)
+    {
+        int sizeClass = getSizeClass(minCapacity);
+        ByteBuffer buffer = null;
+        if (sizeClass <= MAX_SIZE_CLASS) {
+            buffer = mBuffersByClass[sizeClass - MIN_SIZE_CLASS].pollFirst();
+        }
+        if (buffer != null) {
+            mCurrentSize.addAndGet(-buffer.capacity());
+            mHitCount.incrementAndGet();
+            buffer.clear();
+        } else {
+            mMissCount.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(sizeClass <= MAX_SIZE_CLASS ? 1 << sizeClass : minCapacity);
+        }
+        mOutstandingCount.incrementAndGet();
+        buffer.limit(minCapacity);
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer acquired from this pool, keeping it for later
+     * requests if the pool has room for it. Buffers not acquired from this
+     * pool must not be released to it.
+     *
+     * @param buffer
+     *            the buffer to give back, ignored if null or not direct
+     */
+    public void release(@Nullable ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        mOutstandingCount.decrementAndGet();
+        int capacity = buffer.capacity();
+        int sizeClass = 31 - Integer.numberOfLeadingZeros(capacity);
+        if (capacity != 1 << sizeClass || sizeClass < MIN_SIZE_CLASS || sizeClass > MAX_SIZE_CLASS
+            || capacity > mSizeLimit) {
+            return;
+        }
+        mBuffersByClass[sizeClass - MIN_SIZE_CLASS].offerFirst(buffer);
+        if (mCurrentSize.addAndGet(capacity) > mSizeLimit) {
+            trim();
+        }
+    }
+
+    /**
+     * Removes buffers from the pool until it is under its size limit, largest
+     * size classes first.
+     */
+    private void trim()
+    {
+        for (int i = mBuffersByClass.length - 1; i >= 0 && mCurrentSize.get() > mSizeLimit;) {
+            ByteBuffer buffer = mBuffersByClass[i].pollLast();
+            if (buffer == null) {
+                i--;
+            } else {
+                mCurrentSize.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of buffers acquired and not released yet. Once all
+     * the buffers in use are done, a non-zero count reveals leaked buffers.
+     */
+    public int getOutstandingCount()
+    {
+        return mOutstandingCount.get();
+    }
+
+    /**
+     * Returns the number of buffers served from the pool.
+     */
+    public long getHitCount()
+    {
+        return mHitCount.get();
+    }
+
+    /**
+     * Returns the number of buffers allocated because the pool had none of the
+     * requested size.
+     */
+    public long getMissCount()
+    {
+        return mMissCount.get();
+    }
+
+    /**
+     * Returns the total capacity of the buffers retained by the pool, in
+     * bytes.
+     */
+    public int getCurrentSizeBytes()
+    {
+        return mCurrentSize.get();
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 11:02:37 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 11:02:37 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.streamwide.smartms.volley.VolleyLog;
+import com.streamwide.smartms.volley.api.Cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache implementation that stores each entry in a dedicated file of the
+ * specified directory. Entries are evicted in least recently used order once
+ * the total size of the files exceeds the maximum size.
+ */
+public class DiskBasedCache implements Cache {
+
+    /** Default maximum disk usage in bytes. */
+    public static final int DEFAULT_DISK_USAGE_BYTES = 5 * 1024 * 1024;
+
+    /** Fraction of the maximum size the cache is pruned down to. */
+    private static final float HYSTERESIS_FACTOR = 0.9f;
+
+    /** Magic number identifying the current file format. */
+    private static final int CACHE_MAGIC = 0x20261019;
+
+    /** Headers of the entries, in least recently used order. */
+    private final LinkedHashMap<String, CacheHeader> mEntries = new LinkedHashMap<>(16, .75f, true);
+
+    /** Total size of the files of the cache, in bytes. */
+    private long mTotalSize = 0;
+
+    /** The root directory to use for the cache. */
+    private final File mRootDirectory;
+
+    /** The maximum size of the cache in bytes. */
+    private final int mMaxCacheSizeInBytes;
+
+    /**
+     * Constructs an instance of the DiskBasedCache at the specified directory.
+     *
+     * @param rootDirectory
+     *            The root directory of the cache.
+     * @param maxCacheSizeInBytes
+     *            The maximum size of the cache in bytes.
+     */
+    public DiskBasedCache(@NonNull File rootDirectory, int maxCacheSizeInBytes)
+    {
+        mRootDirectory = rootDirectory;
+        mMaxCacheSizeInBytes = maxCacheSizeInBytes;
+    }
+
+    /**
+     * Constructs an instance of the DiskBasedCache at the specified directory
+     * using the default maximum cache size of 5MB.
+     *
+     * @param rootDirectory
+     *            The root directory of the cache.
+     */
+    public DiskBasedCache(@NonNull File rootDirectory)
+    {
+        this(rootDirectory, DEFAULT_DISK_USAGE_BYTES);
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        File[] files = mRootDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    VolleyLog.d("Could not delete cache file %s", file.getAbsolutePath());
+                }
+            }
+        }
+        mEntries.clear();
+        mTotalSize = 0;
+    }
+
+    @Override
+    @Nullable
+    public synchronized Entry get(@NonNull String key)
+    {
+        CacheHeader header = mEntries.get(key);
+        if (header == null) {
+            return null;
+        }
+
+        File file = getFileForKey(key);
+        long length = file.length();
+        try (FileInputStream fileIn = new FileInputStream(file)) {
+            // Only the header goes through the buffer: the data, past it, is
+            // read straight into the array of the entry.
+            CountingInputStream counter = new CountingInputStream(new BufferedInputStream(fileIn));
+            DataInputStream in = new DataInputStream(counter);
+            CacheHeader stored = CacheHeader.readHeader(in);
+            if (!key.equals(stored.mKey)) {
+                // Two keys hashing to the same file name: the file holds the other one.
+                VolleyLog.d("%s: key=%s, found=%s", file.getAbsolutePath(), key, stored.mKey);
+                removeEntry(key);
+                return null;
+            }
+            long dataLength = length - counter.getCount();
+            if (dataLength < 0 || dataLength > Integer.MAX_VALUE) {
+                throw new IOException("Invalid cache file length: " + length);
+            }
+            byte[] data = new byte[(int) dataLength];
+            in.readFully(data);
+            Entry entry = stored.toCacheEntry();
+            entry.setSharedData(data);
+            // Keeps the least recently used order across restarts.
+            file.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException e) {
+            VolleyLog.d("%s: %s", file.getAbsolutePath(), e.toString());
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Initializes the cache by scanning the files of the root directory, in
+     * least recently used order. Creates the root directory if necessary.
+     */
+    @Override
+    public synchronized void initialize()
+    {
+        if (!mRootDirectory.exists()) {
+            if (!mRootDirectory.mkdirs()) {
+                VolleyLog.d("Unable to create cache dir %s", mRootDirectory.getAbsolutePath());
+            }
+            return;
+        }
+        File[] files = mRootDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final Map<File, Long> lastModified = new HashMap<>();
+        for (File file : files) {
+            lastModified.put(file, file.lastModified());
+        }
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File lhs, File rhs)
+            {
+                return Long.compare(lastModified.get(lhs), lastModified.get(rhs));
+            }
+        });
+        for (File file : files) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                CacheHeader header = CacheHeader.readHeader(in);
+                header.mSize = file.length();
+                putEntry(header.mKey, header);
+            } catch (IOException e) {
+                if (!file.delete()) {
+                    VolleyLog.d("Could not delete cache file %s", file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidates an entry in the cache.
+     *
+     * @param key
+     *            Cache key
+     * @param fullExpire
+     *            True to fully expire the entry, false to soft expire
+     */
+    @Override
+    public synchronized void invalidate(@NonNull String key, boolean fullExpire)
+    {
+        Entry entry = get(key);
+        if (entry != null) {
+            entry.setSoftTTL(0);
+            if (fullExpire) {
+                entry.setTTL(0);
+            }
+            put(key, entry);
+        }
+    }
+
+    /**
+     * Puts the entry with the specified key into the cache.
+     */
+    @Override
+    public synchronized void put(@NonNull String key, @NonNull Entry entry)
+    {
+        pruneIfNeeded(entry.getDataLength());
+        File file = getFileForKey(key);
+        CacheHeader header = new CacheHeader(key, entry);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(256);
+            header.writeHeader(new DataOutputStream(headerBytes));
+            headerBytes.writeTo(out);
+            // Written from the entry's own array, without a copy.
+            byte[] data = entry.getSharedData();
+            if (data != null) {
+                out.write(data);
+            }
+            header.mSize = headerBytes.size() + entry.getDataLength();
+            putEntry(key, header);
+        } catch (IOException e) {
+            if (!file.delete()) {
+                VolleyLog.d("Could not clean up file %s", file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Removes the specified key from the cache if it exists.
+     */
+    @Override
+    public synchronized void remove(@NonNull String key)
+    {
+        File file = getFileForKey(key);
+        if (file.exists() && !file.delete()) {
+            VolleyLog.d("Could not delete cache entry for key=%s, filename=%s", key, getFilenameForKey(key));
+        }
+        removeEntry(key);
+    }
+
+    /**
+     * Returns the total size of the files of the cache, in bytes.
+     */
+    public synchronized long getTotalSize()
+    {
+        return mTotalSize;
+    }
+
+    /**
+     * Creates a pseudo-unique filename for the specified cache key.
+     */
+    private static String getFilenameForKey(String key)
+    {
+        int firstHalfLength = key.length() / 2;
+        return String.valueOf(key.substring(0, firstHalfLength).hashCode())
+                        + String.valueOf(key.substring(firstHalfLength).hashCode());
+    }
+
+    /**
+     * Returns a file object for the given cache key.
+     */
+    private File getFileForKey(String key)
+    {
+        return new File(mRootDirectory, getFilenameForKey(key));
+    }
+
+    /**
+     * Prunes the least recently used entries until the given amount of bytes
+     * fits below the maximum size of the cache.
+     */
+    private void pruneIfNeeded(int neededSpace)
+    {
+        if (mTotalSize + neededSpace < mMaxCacheSizeInBytes) {
+            return;
+        }
+
+        Iterator<Map.Entry<String, CacheHeader>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            CacheHeader header = iterator.next().getValue();
+            File file = getFileForKey(header.mKey);
+            if (!file.delete() && file.exists()) {
+                VolleyLog.d("Could not delete cache entry for key=%s, filename=%s", header.mKey,
+                                getFilenameForKey(header.mKey));
+            }
+            mTotalSize -= header.mSize;
+            iterator.remove();
+
+            if (mTotalSize + neededSpace < mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
+                break;
+            }
+        }
+    }
+
+    private void putEntry(String key, CacheHeader header)
+    {
+        CacheHeader previous = mEntries.put(key, header);
+        if (previous != null) {
+            mTotalSize -= previous.mSize;
+        }
+        mTotalSize += header.mSize;
+    }
+
+    private void removeEntry(String key)
+    {
+        CacheHeader removed = mEntries.remove(key);
+        if (removed != null) {
+            mTotalSize -= removed.mSize;
+        }
+    }
+
+    /**
+     * Counts the bytes read from a stream, to tell where the header of a file
+     * ends.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long mCount;
+
+        CountingInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        long getCount()
+        {
+            return mCount;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int result = in.read();
+            if (result != -1) {
+                mCount++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int count) throws IOException
+        {
+            int result = in.read(buffer, offset, count);
+            if (result > 0) {
+                mCount += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = in.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Metadata of an entry, as stored at the beginning of its file.
+     */
+    private static class CacheHeader {
+
+        /** Size of the file holding the entry, in bytes. */
+        long mSize;
+
+        final String mKey;
+
+        final String mEtag;
+
+        final long mServerDate;
+
+        final long mLastModified;
+
+        final long mTtl;
+
+        final long mSoftTtl;
+
+        final Map<String, String> mResponseHeaders;
+
+        CacheHeader(String key, Entry entry)
+        {
+            this(key, entry.getETag(), entry.getServerDate(), entry.getLastModified(), entry.getTTL(),
+                            entry.getSoftTTL(), entry.getResponseHeaders());
+        }
+
+        private CacheHeader(String key, String etag, long serverDate, long lastModified, long ttl, long softTtl,
+                            Map<String, String> responseHeaders)
+        {
+            mKey = key;
+            mEtag = etag;
+            mServerDate = serverDate;
+            mLastModified = lastModified;
+            mTtl = ttl;
+            mSoftTtl = softTtl;
+            mResponseHeaders = responseHeaders != null ? responseHeaders : Collections.<String, String> emptyMap();
+        }
+
+        static CacheHeader readHeader(DataInputStream in) throws IOException
+        {
+            if (in.readInt() != CACHE_MAGIC) {
+                throw new IOException("Unknown cache file format");
+            }
+            String key = in.readUTF();
+            String etag = in.readUTF();
+            long serverDate = in.readLong();
+            long lastModified = in.readLong();
+            long ttl = in.readLong();
+            long softTtl = in.readLong();
+            int headerCount = in.readInt();
+            if (headerCount < 0) {
+                throw new EOFException();
+            }
+            Map<String, String> responseHeaders = new HashMap<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                responseHeaders.put(in.readUTF(), in.readUTF());
+            }
+            return new CacheHeader(key, etag.isEmpty() ? null : etag, serverDate, lastModified, ttl, softTtl,
+                            responseHeaders);
+        }
+
+        void writeHeader(DataOutputStream out) throws IOException
+        {
+            out.writeInt(CACHE_MAGIC);
+            out.writeUTF(mKey);
+            out.writeUTF(mEtag != null ? mEtag : "");
+            out.writeLong(mServerDate);
+            out.writeLong(mLastModified);
+            out.writeLong(mTtl);
+            out.writeLong(mSoftTtl);
+            Map<String, String> headers = new HashMap<>(mResponseHeaders);
+            // The status line may be reported under a null name.
+            headers.remove(null);
+            out.writeInt(headers.size());
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeUTF(header.getValue() != null ? header.getValue() : "");
+            }
+        }
+
+        Entry toCacheEntry()
+        {
+            Entry entry = new Entry();
+            entry.setETag(mEtag);
+            entry.setServerDate(mServerDate);
+            entry.setLastModified(mLastModified);
+            entry.setTTL(mTtl);
+            entry.setSoftTTL(mSoftTtl);
+            entry.setResponseHeaders(mResponseHeaders);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 16:02:41 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 16:02:41 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the latencies of the last successful requests to each host, to tell
+ * how long a request to a host usually takes.
+ */
+public class HostLatencyTracker {
+
+    /** Number of latencies kept per host. */
+    private static final int SAMPLE_COUNT = 100;
+
+    /** Number of latencies needed before reporting a percentile. */
+    public static final int MIN_SAMPLE_COUNT = 20;
+
+    private final ConcurrentHashMap<String, Samples> mSamples = new ConcurrentHashMap<>();
+
+    /**
+     * Records the latency of a successful request to the given host.
+     */
+    public void record(@NonNull String host, long latencyMs)
+    {
+        Samples samples = mSamples.get(host);
+        if (samples == null) {
+            Samples created = new Samples();
+            samples = mSamples.putIfAbsent(host, created);
+            if (samples == null) {
+                samples = created;
+            }
+        }
+        samples.add(latencyMs);
+    }
+
+    /**
+     * Returns the given percentile of the latencies recorded for the given
+     * host, e.g. 0.95 for the 95th percentile, or -1 if too few latencies
+     * were recorded.
+     */
+    public long getPercentileMs(@NonNull String host, float percentile)
+    {
+        Samples samples = mSamples.get(host);
+        return samples != null ? samples.getPercentile(percentile) : -1;
+    }
+
+    /**
+     * Ring of the last latencies of a host, guarded by its own monitor.
+     */
+    private static class Samples {
+
+        private final long[] mLatencies = new long[SAMPLE_COUNT];
+
+        private int mCount;
+
+        private int mNext;
+
+        synchronized void add(long latencyMs)
+        {
+            mLatencies[mNext] = latencyMs;
+            mNext = (mNext + 1) % SAMPLE_COUNT;
+            mCount = Math.min(mCount + 1, SAMPLE_COUNT);
+        }
+
+        synchronized long getPercentile(float percentile)
+        {
+            if (mCount < MIN_SAMPLE_COUNT) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(mLatencies, mCount);
+            Arrays.sort(sorted);
+            return sorted[Math.min(mCount - 1, (int) (percentile * mCount))];
+        }
+    }
+}
@@ -105,7 +105,7 @@ public class HurlStack implements HttpStack {
             if (requiresRequestBody(request.getMethod())) {
                 connection.setDoOutput(true);
 
-                byte[] body = request.getBody();
+                byte[] body = request.getEncodedBody();
                 if (body != null) {
                     try (OutputStream os = connection.getOutputStream()) {
                         os.write(body);
@@ -0,0 +1,93 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 12:58:20 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 12:58:20 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+/**
+ * Counters of the response batches delivered by an {@link ImageLoader}: how
+ * many responses each batch coalesced, and how long the first response of
+ * each batch was held back before delivery.
+ */
+public class ImageBatchStats {
+
+    private long mBatchCount;
+    private long mImmediateCount;
+    private long mTotalSize;
+    private int mMaxSize;
+    private long mTotalAddedLatencyMs;
+    private long mMaxAddedLatencyMs;
+
+    synchronized void onBatchDelivered(int size, long addedLatencyMs, boolean immediate)
+    {
+        mBatchCount++;
+        if (immediate) {
+            mImmediateCount++;
+        }
+        mTotalSize += size;
+        mMaxSize = Math.max(mMaxSize, size);
+        mTotalAddedLatencyMs += addedLatencyMs;
+        mMaxAddedLatencyMs = Math.max(mMaxAddedLatencyMs, addedLatencyMs);
+    }
+
+    /** Returns the number of batches delivered. */
+    public synchronized long getBatchCount()
+    {
+        return mBatchCount;
+    }
+
+    /** Returns the number of batches delivered as soon as they arrived. */
+    public synchronized long getImmediateCount()
+    {
+        return mImmediateCount;
+    }
+
+    /** Returns the average number of responses per batch. */
+    public synchronized float getAverageBatchSize()
+    {
+        return mBatchCount == 0 ? 0 : (float) mTotalSize / mBatchCount;
+    }
+
+    /** Returns the highest number of responses delivered in one batch. */
+    public synchronized int getMaxBatchSize()
+    {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the average time the first response of a batch waited for its
+     * delivery, in milliseconds.
+     */
+    public synchronized long getAverageAddedLatencyMs()
+    {
+        return mBatchCount == 0 ? 0 : mTotalAddedLatencyMs / mBatchCount;
+    }
+
+    /**
+     * Returns the longest time the first response of a batch waited for its
+     * delivery, in milliseconds.
+     */
+    public synchronized long getMaxAddedLatencyMs()
+    {
+        return mMaxAddedLatencyMs;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "batches=" + mBatchCount + " immediate=" + mImmediateCount + " avgSize=" + getAverageBatchSize()
+            + " maxSize=" + mMaxSize + " avgAddedLatencyMs=" + getAverageAddedLatencyMs() + " maxAddedLatencyMs="
+            + mMaxAddedLatencyMs;
+    }
+}
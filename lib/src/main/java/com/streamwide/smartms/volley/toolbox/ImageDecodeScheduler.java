@@ -0,0 +1,134 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 11:40:52 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 11:40:52 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Admits image decodes against a memory budget, so that small decodes run in
+ * parallel while large ones wait for enough memory to be released.
+ *
+ * <p>
+ * Each decode reserves its estimated bitmap memory before decoding and
+ * releases it afterwards. Decodes are admitted in arrival order; a decode
+ * larger than the whole budget is admitted once it is alone.
+ * </p>
+ */
+public class ImageDecodeScheduler {
+
+    /** Fraction of the maximum heap used as the default decode budget. */
+    private static final int DEFAULT_BUDGET_HEAP_DIVISOR = 8;
+
+    /** The maximum number of bytes of bitmap memory decoded at once. */
+    private final long mBudgetBytes;
+
+    /** Bytes currently reserved by running decodes. */
+    private long mReservedBytes = 0;
+
+    /** Ticket handed out to the next decode asking for admission. */
+    private long mNextTicket = 0;
+
+    /** Ticket of the decode next in line for admission. */
+    private long mHeadTicket = 0;
+
+    /**
+     * Returns the default decode budget: an eighth of the maximum heap size.
+     */
+    public static long getDefaultBudgetBytes()
+    {
+        return Runtime.getRuntime().maxMemory() / DEFAULT_BUDGET_HEAP_DIVISOR;
+    }
+
+    /**
+     * Returns the number of bytes used by a pixel of the given config.
+     */
+    public static int getBytesPerPixel(@NonNull Bitmap.Config config)
+    {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        return 4;
+    }
+
+    /**
+     * @param budgetBytes
+     *            the maximum number of bytes of bitmap memory decoded at once
+     */
+    public ImageDecodeScheduler(long budgetBytes)
+    {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Decode budget must be positive: " + budgetBytes);
+        }
+        mBudgetBytes = budgetBytes;
+    }
+
+    /**
+     * Waits until a decode needing the given memory can run, and reserves that
+     * memory. Every call must be paired with {@link #release(long)}.
+     *
+     * @param estimatedBytes
+     *            the estimated bitmap memory of the decode
+     * @return the number of bytes reserved, to pass to {@link #release(long)}
+     */
+    public synchronized long acquire(long estimatedBytes)
+    {
+        long bytes = Math.min(Math.max(estimatedBytes, 0), mBudgetBytes);
+        long ticket = mNextTicket++;
+        boolean interrupted = false;
+        while (ticket != mHeadTicket || mReservedBytes + bytes > mBudgetBytes) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // Leaving the line would block every decode behind us.
+                interrupted = true;
+            }
+        }
+        mHeadTicket++;
+        mReservedBytes += bytes;
+        // The next decode in line may fit in what is left.
+        notifyAll();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases memory reserved by {@link #acquire(long)}.
+     */
+    public synchronized void release(long reservedBytes)
+    {
+        mReservedBytes -= reservedBytes;
+        notifyAll();
+    }
+
+    /** Returns the maximum number of bytes of bitmap memory decoded at once. */
+    public long getBudgetBytes()
+    {
+        return mBudgetBytes;
+    }
+
+    /** Returns the bytes currently reserved by running decodes. */
+    public synchronized long getReservedBytes()
+    {
+        return mReservedBytes;
+    }
+}
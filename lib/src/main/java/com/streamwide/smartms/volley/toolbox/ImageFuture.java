@@ -0,0 +1,184 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 12:31:14 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 12:31:14 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.streamwide.smartms.volley.api.VolleyError;
+import com.streamwide.smartms.volley.toolbox.ImageLoader.ImageContainer;
+import com.streamwide.smartms.volley.toolbox.ImageLoader.ImageListener;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A Future that represents an image loaded by an {@link ImageLoader}, for use
+ * from worker threads. For example:
+ *
+ * <pre>
+ * ImageFuture future = imageLoader.getFuture(url, 0, 0, ScaleType.CENTER_INSIDE);
+ * try {
+ *     Bitmap bitmap = future.get(10, TimeUnit.SECONDS);
+ *     // do something with bitmap
+ * } catch (InterruptedException | ExecutionException | TimeoutException e) {
+ *     // handle the error
+ * }
+ * </pre>
+ *
+ * The image goes through the loader as if requested from the main thread: it
+ * is served from the cache when possible, and shares its request with the
+ * other containers waiting for the same image. Waiting on the main thread is
+ * not allowed, as the result is delivered there.
+ */
+public class ImageFuture implements Future<Bitmap>, ImageListener {
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private ImageContainer mContainer;
+    private boolean mCancelled = false;
+    private boolean mResultReceived = false;
+    private Bitmap mResult;
+    private VolleyError mException;
+
+    ImageFuture()
+    {
+    }
+
+    /**
+     * Binds the container of the image; called on the main thread.
+     */
+    synchronized void setContainer(@NonNull ImageContainer container)
+    {
+        mContainer = container;
+        if (mCancelled) {
+            container.cancelRequest();
+        }
+    }
+
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning)
+    {
+        if (isDone()) {
+            return false;
+        }
+        mCancelled = true;
+        final ImageContainer container = mContainer;
+        if (container != null) {
+            mHandler.post(new Runnable() {
+
+                @Override
+                public void run()
+                {
+                    container.cancelRequest();
+                }
+            });
+        }
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    @Nullable
+    public Bitmap get() throws InterruptedException, ExecutionException
+    {
+        try {
+            return doGet(null);
+        } catch (TimeoutException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    @Nullable
+    public Bitmap get(long timeout, @NonNull TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException
+    {
+        return doGet(TimeUnit.MILLISECONDS.convert(timeout, unit));
+    }
+
+    private synchronized Bitmap doGet(Long timeoutMs)
+        throws InterruptedException, ExecutionException, TimeoutException
+    {
+        if (!isDone() && Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("ImageFuture cannot be waited on from the main thread.");
+        }
+
+        if (timeoutMs == null) {
+            while (!isDone()) {
+                wait(0);
+            }
+        } else if (timeoutMs > 0 && !isDone()) {
+            wait(timeoutMs);
+        }
+
+        if (mCancelled) {
+            throw new CancellationException();
+        }
+
+        if (mException != null) {
+            throw new ExecutionException(mException);
+        }
+
+        if (!mResultReceived) {
+            throw new TimeoutException();
+        }
+
+        return mResult;
+    }
+
+    @Override
+    public synchronized boolean isCancelled()
+    {
+        return mCancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone()
+    {
+        return mResultReceived || mException != null || mCancelled;
+    }
+
+    @Override
+    public synchronized void onResponse(@NonNull ImageContainer response, boolean isImmediate)
+    {
+        // An immediate response without bitmap only stands for the
+        // placeholder, the image is still loading, and a preview only stands
+        // in for it.
+        if (response.getBitmap() == null || response.isPreview() || isDone()) {
+            return;
+        }
+        mResultReceived = true;
+        mResult = response.getBitmap();
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onErrorResponse(@Nullable VolleyError error)
+    {
+        if (isDone()) {
+            return;
+        }
+        mException = error != null ? error : new VolleyError("Image could not be loaded");
+        notifyAll();
+    }
+}
@@ -18,13 +18,19 @@ import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.Choreographer;
 import android.widget.ImageView;
 import android.widget.ImageView.ScaleType;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.streamwide.smartms.volley.api.Cache;
+import com.streamwide.smartms.volley.api.NetworkResponse;
 import com.streamwide.smartms.volley.api.Request;
+import com.streamwide.smartms.volley.api.Response;
 import com.streamwide.smartms.volley.RequestQueue;
 import com.streamwide.smartms.volley.api.Response.ErrorListener;
 import com.streamwide.smartms.volley.api.Response.Listener;
@@ -32,8 +38,18 @@ import com.streamwide.smartms.volley.api.ImageRequest;
 import com.streamwide.smartms.volley.api.VolleyError;
 import com.streamwide.smartms.volley.util.CollectionUtil;
 
-import java.util.HashMap;
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Helper that handles loading and caching images from remote URLs.
@@ -46,9 +62,33 @@ import java.util.LinkedList;
  * this class must be made from the main thead, and all responses will be
  * delivered to the main
  * thread as well.
+ * 
+ * Worker threads load images through
+ * {@link ImageLoader#getFuture(String, int, int, ScaleType)} or
+ * {@link ImageLoader#prefetch(List, int, int)}, which hand the request over to
+ * the main thread, so that they share the cache and in-flight requests of the
+ * images on screen.
  */
 public class ImageLoader {
 
+    /**
+     * Default minimum time an image fetched from the network is kept fresh in
+     * the disk cache, whatever its cache headers say.
+     */
+    public static final long DEFAULT_DISK_CACHE_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    /** Quality of the pre-scaled variants written to the disk cache. */
+    private static final int DISK_VARIANT_QUALITY = 90;
+
+    /** Format the images are decoded to. */
+    private static final Config DECODE_CONFIG = Config.RGB_565;
+
+    /**
+     * Duration of a frame: responses arriving closer to each other than this
+     * make a burst worth coalescing.
+     */
+    private static final long FRAME_INTERVAL_MS = 16;
+
     /** RequestQueue for dispatching ImageRequests onto. */
     private final RequestQueue mRequestQueue;
 
@@ -58,6 +98,49 @@ public class ImageLoader {
      */
     private int mBatchResponseDelayMs = 100;
 
+    /**
+     * True to deliver lone responses right away and coalesce bursts up to the
+     * next quiet frame, false to always wait for the batch delay.
+     */
+    private boolean mAdaptiveBatching = true;
+
+    /** True to deliver a preview of large images ahead of the full decode. */
+    private volatile boolean mProgressiveLoading = false;
+
+    /** Time the last response arrived at, in uptime milliseconds. */
+    private long mLastResponseTimeMs;
+
+    /** Time the first response of the pending batch arrived at. */
+    private long mBatchStartTimeMs;
+
+    /** True if the pending batch is delivered without waiting. */
+    private boolean mBatchImmediate;
+
+    /** Size and added latency counters of the delivered batches. */
+    private final ImageBatchStats mBatchStats = new ImageBatchStats();
+
+    /**
+     * Frame callback delivering the pending batch once a frame passes without
+     * new responses, or once the batch delay is over.
+     */
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos)
+        {
+            if (mRunnable == null) {
+                return;
+            }
+            long now = SystemClock.uptimeMillis();
+            if (now - mLastResponseTimeMs < FRAME_INTERVAL_MS && now - mBatchStartTimeMs < mBatchResponseDelayMs) {
+                // Still in the burst: keep coalescing.
+                Choreographer.getInstance().postFrameCallback(this);
+            } else {
+                mRunnable.run();
+            }
+        }
+    };
+
     /**
      * The cache implementation to be used as an L1 cache before calling into
      * volley.
@@ -65,15 +148,50 @@ public class ImageLoader {
     private final ImageCache mCache;
 
     /**
-     * HashMap of Cache keys -> BatchedImageRequest used to track in-flight
+     * The cache of original and pre-scaled encoded images used as an L2 cache,
+     * or null for none.
+     */
+    private volatile Cache mDiskCache;
+
+    /** Minimum time an image fetched from the network stays fresh on disk. */
+    private volatile long mDiskCacheMaxAgeMs = DEFAULT_DISK_CACHE_MAX_AGE_MS;
+
+    /** Thread looking up the disk cache, created with the first disk cache. */
+    private ExecutorService mDiskExecutor;
+
+    /** Thread downscaling cached variants, created with the first one. */
+    private ExecutorService mResizeExecutor;
+
+    /** Most URLs whose variants are indexed. */
+    private static final int MAX_INDEXED_URLS = 512;
+
+    /**
+     * Index of URL -> cache keys of the variants requested for it, least
+     * recently requested URL first. Only accessed from the main thread.
+     */
+    private final LinkedHashMap<String, Set<String>> mVariantKeys = new LinkedHashMap<String, Set<String>>(16, 0.75f,
+                    true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest)
+        {
+            return size() > MAX_INDEXED_URLS;
+        }
+    };
+
+    /**
+     * Map of Cache keys -> BatchedImageRequest used to track in-flight
      * requests so
      * that we can coalesce multiple requests to the same URL into a single
      * network request.
      */
-    private final HashMap<String, BatchedImageRequest> mInFlightRequests = new HashMap<>();
+    private final ConcurrentHashMap<String, BatchedImageRequest> mInFlightRequests = new ConcurrentHashMap<>();
+
+    /** Map of the currently pending responses (waiting to be delivered). */
+    private final ConcurrentHashMap<String, BatchedImageRequest> mBatchedResponses = new ConcurrentHashMap<>();
 
-    /** HashMap of the currently pending responses (waiting to be delivered). */
-    private final HashMap<String, BatchedImageRequest> mBatchedResponses = new HashMap<>();
+    /** Containers of the prefetches still in flight. */
+    private final Set<ImageContainer> mPrefetches = new HashSet<>();
 
     /** Handler to the main thread. */
     private final Handler mHandler = new Handler(Looper.getMainLooper());
@@ -81,6 +199,29 @@ public class ImageLoader {
     /** Runnable for in-flight response delivery. */
     private Runnable mRunnable;
 
+    /**
+     * Creates a single background thread executor with the given thread name.
+     */
+    private static ExecutorService newBackgroundExecutor(final String threadName)
+    {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable)
+            {
+                return new Thread(new Runnable() {
+
+                    @Override
+                    public void run()
+                    {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, threadName);
+            }
+        });
+    }
+
     /**
      * Simple cache adapter interface. If provided to the ImageLoader, it
      * will be used as an L1 cache before dispatch to Volley. Implementations
@@ -92,6 +233,18 @@ public class ImageLoader {
         public Bitmap getBitmap(@NonNull String url);
 
         public void putBitmap(@NonNull String url, @NonNull Bitmap bitmap);
+
+        /**
+         * Returns the cached bitmap without counting it as used, e.g. without
+         * making it the most recently used entry of an LRU cache. Called to
+         * look for larger variants of a missed image. Defaults to
+         * {@link #getBitmap(String)}.
+         */
+        @Nullable
+        public default Bitmap peekBitmap(@NonNull String url)
+        {
+            return getBitmap(url);
+        }
     }
 
     /**
@@ -108,6 +261,49 @@ public class ImageLoader {
         mCache = imageCache;
     }
 
+    /**
+     * Sets the disk cache checked, off the main thread, before an image
+     * request is sent to the network. Both the original bytes of the fetched
+     * images and their pre-scaled variants are stored in it, keyed like the
+     * L1 cache. Passing null disables the disk cache.
+     *
+     * @param diskCache
+     *            The cache to use as an L2 cache, or null for none.
+     */
+    public void setDiskCache(@Nullable final Cache diskCache)
+    {
+        throwIfNotOnMainThread();
+
+        mDiskCache = diskCache;
+        if (diskCache == null) {
+            return;
+        }
+        if (mDiskExecutor == null) {
+            mDiskExecutor = newBackgroundExecutor("VolleyImageDisk");
+        }
+        // Queued before any lookup, on the same single thread.
+        mDiskExecutor.execute(new Runnable() {
+
+            @Override
+            public void run()
+            {
+                diskCache.initialize();
+            }
+        });
+    }
+
+    /**
+     * Sets the minimum time an image fetched from the network is served from
+     * the disk cache, for servers sending no or short-lived cache headers.
+     *
+     * @param diskCacheMaxAgeMs
+     *            The time in milliseconds, or 0 to only honor cache headers.
+     */
+    public void setDiskCacheMaxAge(long diskCacheMaxAgeMs)
+    {
+        mDiskCacheMaxAgeMs = diskCacheMaxAgeMs;
+    }
+
     /**
      * The default implementation of ImageListener which handles basic
      * functionality
@@ -159,6 +355,8 @@ public class ImageLoader {
      * 2. After a network response returns, only one of the following cases will
      * happen:
      * - onResponse(response, false) will be called if the image was loaded.
+     * With progressive loading, it may first be called with a preview, see
+     * {@link ImageContainer#isPreview()}.
      * or
      * - onErrorResponse will be called if there was an error loading the image.
      */
@@ -271,6 +469,21 @@ public class ImageLoader {
      */
     @NonNull
     public ImageContainer get(@NonNull String requestUrl, int maxWidth, int maxHeight, @NonNull ScaleType scaleType, @NonNull ImageListener imageListener)
+    {
+        return get(requestUrl, maxWidth, maxHeight, scaleType, imageListener, Request.Priority.NORMAL);
+    }
+
+    /**
+     * Equivalent to {@link #get(String, int, int, ScaleType, ImageListener)},
+     * fetching the image at the given priority. The priority can be changed
+     * later through {@link ImageContainer#setPriority(Request.Priority)}.
+     *
+     * @param priority
+     *            The priority of the request for this container
+     */
+    @NonNull
+    public ImageContainer get(@NonNull String requestUrl, int maxWidth, int maxHeight, @NonNull ScaleType scaleType,
+                              @NonNull ImageListener imageListener, @NonNull Request.Priority priority)
     {
 
         // only fulfill requests that were initiated from the main thread.
@@ -288,7 +501,7 @@ public class ImageLoader {
         }
 
         // The bitmap did not exist in the cache, fetch it!
-        ImageContainer imageContainer = new ImageContainer(null, requestUrl, cacheKey, imageListener);
+        ImageContainer imageContainer = new ImageContainer(null, requestUrl, cacheKey, imageListener, priority);
 
         // Update the caller to let them know that they should use the default
         // bitmap.
@@ -306,37 +519,334 @@ public class ImageLoader {
         // network and
         // track it.
         Request<Bitmap> newRequest = makeImageRequest(requestUrl, maxWidth, maxHeight, scaleType, cacheKey);
+        newRequest.setPriority(priority);
 
-        mRequestQueue.add(newRequest);
         mInFlightRequests.put(cacheKey, new BatchedImageRequest(newRequest, imageContainer));
+        ResizeLookup resizeLookup = findLargerVariant(requestUrl, maxWidth, maxHeight, scaleType, cacheKey,
+                        newRequest);
+        indexVariant(requestUrl, maxWidth, maxHeight, scaleType, cacheKey);
+        if (resizeLookup != null) {
+            // The request only goes further if the variant is evicted meanwhile.
+            if (mResizeExecutor == null) {
+                mResizeExecutor = newBackgroundExecutor("VolleyImageResize");
+            }
+            mResizeExecutor.execute(resizeLookup);
+        } else {
+            dispatch(newRequest, requestUrl, maxWidth, maxHeight, scaleType, cacheKey);
+        }
         return imageContainer;
     }
 
+    /**
+     * Sends the given request to the disk cache if there is one, then to the
+     * network.
+     */
+    private void dispatch(Request<Bitmap> request, String requestUrl, int maxWidth, int maxHeight,
+                          ScaleType scaleType, String cacheKey)
+    {
+        Cache diskCache = mDiskCache;
+        if (diskCache != null) {
+            // The request only goes to the network if the disk cache misses.
+            mDiskExecutor.execute(new DiskLookup(diskCache, request, requestUrl, maxWidth, maxHeight, scaleType,
+                            cacheKey));
+        } else {
+            mRequestQueue.add(request);
+        }
+    }
+
+    /**
+     * Remembers the cache key of a variant of the given URL, so that other
+     * sizes of the image can be scaled down from it. Stretched variants are
+     * not indexed, their aspect ratio is lost.
+     */
+    private void indexVariant(String requestUrl, int maxWidth, int maxHeight, ScaleType scaleType, String cacheKey)
+    {
+        if (scaleType == ScaleType.FIT_XY && (maxWidth != 0 || maxHeight != 0)) {
+            return;
+        }
+        Set<String> keys = mVariantKeys.get(requestUrl);
+        if (keys == null) {
+            keys = new HashSet<>();
+            mVariantKeys.put(requestUrl, keys);
+        }
+        keys.add(cacheKey);
+    }
+
+    /**
+     * Looks up the memory cache for the smallest variant of the given URL at
+     * least as large as the requested size, and returns the lookup scaling it
+     * down, or null if there is none.
+     */
+    @Nullable
+    private ResizeLookup findLargerVariant(String requestUrl, int maxWidth, int maxHeight, ScaleType scaleType,
+                                           String cacheKey, Request<Bitmap> request)
+    {
+        Set<String> keys = mVariantKeys.get(requestUrl);
+        if (keys == null) {
+            return null;
+        }
+        boolean originalRequested = maxWidth == 0 && maxHeight == 0;
+        String sourceKey = null;
+        Bitmap source = null;
+        int targetWidth = 0;
+        int targetHeight = 0;
+        for (Iterator<String> iterator = keys.iterator(); iterator.hasNext();) {
+            String key = iterator.next();
+            // Only the variant picked as the source counts as used.
+            Bitmap bitmap = mCache.peekBitmap(key);
+            if (bitmap == null) {
+                // Evicted, or still loading: only keep the latter.
+                if (!mInFlightRequests.containsKey(key)) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            boolean original = key.startsWith(ORIGINAL_KEY_PREFIX);
+            if (originalRequested && !original) {
+                continue;
+            }
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            int desiredWidth = ImageRequest.getResizedDimension(maxWidth, maxHeight, width, height, scaleType);
+            int desiredHeight = ImageRequest.getResizedDimension(maxHeight, maxWidth, height, width, scaleType);
+            if (original && (desiredWidth >= width || desiredHeight >= height)) {
+                // Like ImageRequest, never scale the original image up.
+                desiredWidth = width;
+                desiredHeight = height;
+            } else if (desiredWidth > width || desiredHeight > height) {
+                continue;
+            }
+            if (desiredWidth <= 0 || desiredHeight <= 0) {
+                continue;
+            }
+            if (source == null || (long) width * height < (long) source.getWidth() * source.getHeight()) {
+                sourceKey = key;
+                source = bitmap;
+                targetWidth = desiredWidth;
+                targetHeight = desiredHeight;
+            }
+        }
+        if (source == null) {
+            return null;
+        }
+        return new ResizeLookup(request, requestUrl, maxWidth, maxHeight, scaleType, cacheKey, sourceKey, source,
+                        targetWidth, targetHeight);
+    }
+
     @NonNull
-    protected Request<Bitmap> makeImageRequest(@NonNull String requestUrl, int maxWidth, int maxHeight, @NonNull ScaleType scaleType,
-                                               @NonNull final String cacheKey)
+    protected Request<Bitmap> makeImageRequest(@NonNull final String requestUrl, final int maxWidth, final int maxHeight,
+                                               @NonNull ScaleType scaleType, @NonNull final String cacheKey)
     {
-        return new ImageRequest(requestUrl, new Listener<Bitmap>() {
+        ImageRequest request = new ImageRequest(requestUrl, new Listener<Bitmap>() {
 
             @Override
             public void onResponse(Bitmap response)
             {
                 onGetImageSuccess(cacheKey, response);
             }
-        }, maxWidth, maxHeight, scaleType, Config.RGB_565, new ErrorListener() {
+        }, maxWidth, maxHeight, scaleType, DECODE_CONFIG, new ErrorListener() {
 
             @Override
             public void onErrorResponse(VolleyError error)
             {
                 onGetImageError(cacheKey, error);
             }
-        });
+        }) {
+
+            @Override
+            @Nullable
+            public Response<Bitmap> parseNetworkResponse(@NonNull NetworkResponse response)
+            {
+                Response<Bitmap> parsed = super.parseNetworkResponse(response);
+                Cache diskCache = mDiskCache;
+                if (diskCache != null && parsed != null && parsed.isSuccess() && parsed.cacheEntry != null
+                    && parsed.cacheEntry.getDataLength() > 0) {
+                    // Still on a worker thread: store the image for the next
+                    // cold start.
+                    diskCache.put(getCacheKey(requestUrl, 0, 0, ScaleType.CENTER_INSIDE),
+                                    withMinimumTtl(parsed.cacheEntry));
+                    if (maxWidth != 0 || maxHeight != 0) {
+                        putVariant(diskCache, cacheKey, parsed.cacheEntry, parsed.result);
+                    }
+                }
+                return parsed;
+            }
+        };
+        if (mProgressiveLoading) {
+            request.setPreviewListener(new Listener<Bitmap>() {
+
+                @Override
+                public void onResponse(Bitmap response)
+                {
+                    onGetImagePreview(cacheKey, response);
+                }
+            });
+        }
+        return request;
+    }
+
+    /**
+     * Encodes the given pre-scaled bitmap into the disk cache, with the cache
+     * metadata of its original image.
+     */
+    private void putVariant(Cache diskCache, String cacheKey, Cache.Entry originalEntry, Bitmap bitmap)
+    {
+        if (bitmap == null) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bitmap.getByteCount() / 8);
+        Bitmap.CompressFormat format = bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+        if (!bitmap.compress(format, DISK_VARIANT_QUALITY, bytes)) {
+            return;
+        }
+        Cache.Entry entry = withMinimumTtl(originalEntry);
+        Cache.Entry variant = new Cache.Entry();
+        variant.setSharedData(bytes.toByteArray());
+        variant.setETag(entry.getETag());
+        variant.setServerDate(entry.getServerDate());
+        variant.setLastModified(entry.getLastModified());
+        variant.setTTL(entry.getTTL());
+        variant.setSoftTTL(entry.getSoftTTL());
+        variant.setResponseHeaders(entry.getResponseHeaders());
+        diskCache.put(cacheKey, variant);
+    }
+
+    /**
+     * Extends the TTL of the given entry to the minimum disk cache age.
+     */
+    private Cache.Entry withMinimumTtl(Cache.Entry entry)
+    {
+        long minimumTtl = System.currentTimeMillis() + mDiskCacheMaxAgeMs;
+        if (entry.getTTL() < minimumTtl) {
+            entry.setTTL(minimumTtl);
+        }
+        if (entry.getSoftTTL() < minimumTtl) {
+            entry.setSoftTTL(minimumTtl);
+        }
+        return entry;
+    }
+
+    /**
+     * Loads an image for a worker thread, e.g. a notification builder or a
+     * widget updater. The returned future completes with the bitmap, served
+     * from the cache when possible, and otherwise shares the request of any
+     * container waiting for the same image. Can be called from any thread, but
+     * the future must not be waited on from the main thread.
+     *
+     * @param requestUrl
+     *            The url of the remote image
+     * @param maxWidth
+     *            The maximum width of the returned image.
+     * @param maxHeight
+     *            The maximum height of the returned image.
+     * @param scaleType
+     *            The scaleType used to calculate the needed image size.
+     * @return A future completed with the bitmap on the main thread.
+     */
+    @NonNull
+    public ImageFuture getFuture(@NonNull final String requestUrl, final int maxWidth, final int maxHeight,
+                                 @NonNull final ScaleType scaleType)
+    {
+        final ImageFuture future = new ImageFuture();
+        Runnable load = new Runnable() {
+
+            @Override
+            public void run()
+            {
+                if (!future.isCancelled()) {
+                    future.setContainer(get(requestUrl, maxWidth, maxHeight, scaleType, future));
+                }
+            }
+        };
+        // The in-flight and batched maps are only written from the main
+        // thread, which keeps the batching unchanged.
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            load.run();
+        } else {
+            mHandler.post(load);
+        }
+        return future;
+    }
+
+    /**
+     * Warms the caches with the given images at {@link Request.Priority#LOW},
+     * so that they do not compete with the images on screen. Images already
+     * in the memory cache are skipped. Can be called from any thread.
+     *
+     * @param urls
+     *            The urls of the remote images
+     * @param maxWidth
+     *            The maximum width the images will be requested with.
+     * @param maxHeight
+     *            The maximum height the images will be requested with.
+     */
+    public void prefetch(@NonNull final List<String> urls, final int maxWidth, final int maxHeight)
+    {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mHandler.post(new Runnable() {
+
+                @Override
+                public void run()
+                {
+                    prefetch(urls, maxWidth, maxHeight);
+                }
+            });
+            return;
+        }
+
+        for (String url : urls) {
+            PrefetchListener listener = new PrefetchListener();
+            ImageContainer container =
+                get(url, maxWidth, maxHeight, ScaleType.CENTER_INSIDE, listener, Request.Priority.LOW);
+            if (container.getBitmap() == null) {
+                listener.mContainer = container;
+                mPrefetches.add(container);
+            }
+        }
+    }
+
+    /**
+     * Releases interest in the prefetches still in flight, cancelling their
+     * requests unless an image on screen waits for the same image.
+     */
+    public void cancelPrefetches()
+    {
+        throwIfNotOnMainThread();
+
+        for (ImageContainer container : new LinkedList<>(mPrefetches)) {
+            container.cancelRequest();
+        }
+        mPrefetches.clear();
+    }
+
+    /**
+     * Forgets a prefetch once its image is loaded or has failed.
+     */
+    private class PrefetchListener implements ImageListener {
+
+        /** The container of the prefetch, set once the request is in flight. */
+        ImageContainer mContainer;
+
+        @Override
+        public void onErrorResponse(VolleyError error)
+        {
+            mPrefetches.remove(mContainer);
+        }
+
+        @Override
+        public void onResponse(@NonNull ImageContainer response, boolean isImmediate)
+        {
+            if (!isImmediate && !response.isPreview()) {
+                mPrefetches.remove(response);
+            }
+        }
     }
 
     /**
      * Sets the amount of time to wait after the first response arrives before
      * delivering all
-     * responses. Batching can be disabled entirely by passing in 0.
+     * responses. Batching can be disabled entirely by passing in 0. With
+     * adaptive batching, this is the longest a burst is coalesced.
      * 
      * @param newBatchedResponseDelayMs
      *            The time in milliseconds to wait.
@@ -346,6 +856,39 @@ public class ImageLoader {
         mBatchResponseDelayMs = newBatchedResponseDelayMs;
     }
 
+    /**
+     * Enables or disables adaptive batching, enabled by default. When enabled,
+     * a response arriving while the main thread is idle and no other response
+     * is arriving is delivered right away; bursts of responses are coalesced
+     * until a frame passes without new responses, up to the batch delay. When
+     * disabled, every batch waits for the batch delay.
+     */
+    public void setAdaptiveBatching(boolean adaptiveBatching)
+    {
+        mAdaptiveBatching = adaptiveBatching;
+    }
+
+    /**
+     * Enables or disables progressive loading, disabled by default. When
+     * enabled, listeners of large images first receive a low-resolution
+     * preview, decoded from the EXIF thumbnail or a heavily sampled pass, then
+     * the full image. Previews are delivered right away and never cached.
+     */
+    public void setProgressiveLoading(boolean progressiveLoading)
+    {
+        mProgressiveLoading = progressiveLoading;
+    }
+
+    /**
+     * Returns the size and added latency counters of the response batches
+     * delivered by this loader.
+     */
+    @NonNull
+    public ImageBatchStats getBatchStats()
+    {
+        return mBatchStats;
+    }
+
     /**
      * Handler for when an image was successfully loaded.
      * 
@@ -371,6 +914,29 @@ public class ImageLoader {
         }
     }
 
+    /**
+     * Handler for when the preview of an image was decoded, ahead of the full
+     * image. Delivers it to the requesters without caching it.
+     *
+     * @param cacheKey
+     *            The cache key that is associated with the image request.
+     * @param preview
+     *            The low-resolution preview of the image.
+     */
+    protected void onGetImagePreview(@NonNull String cacheKey, @Nullable Bitmap preview)
+    {
+        BatchedImageRequest request = mInFlightRequests.get(cacheKey);
+        if (request == null || preview == null) {
+            return;
+        }
+        for (ImageContainer container : request.getContainers()) {
+            if (container.getListener() != null) {
+                container.setPreview(preview);
+                container.getListener().onResponse(container, false);
+            }
+        }
+    }
+
     /**
      * Handler for when an image failed to load.
      * 
@@ -405,6 +971,9 @@ public class ImageLoader {
          */
         private Bitmap mBitmap;
 
+        /** True while the bitmap is only a preview of the image. */
+        private boolean mPreview;
+
         private final ImageListener mListener;
 
         /** The cache key that was associated with the request */
@@ -413,6 +982,9 @@ public class ImageLoader {
         /** The request URL that was specified */
         private final String mRequestUrl;
 
+        /** The priority this container wants its request to run at */
+        private Request.Priority mPriority;
+
         /**
          * Constructs a BitmapContainer object.
          * 
@@ -425,11 +997,46 @@ public class ImageLoader {
          *            container.
          */
         public ImageContainer(@Nullable Bitmap bitmap, @NonNull String requestUrl, @Nullable String cacheKey, @Nullable ImageListener listener)
+        {
+            this(bitmap, requestUrl, cacheKey, listener, Request.Priority.NORMAL);
+        }
+
+        ImageContainer(Bitmap bitmap, String requestUrl, String cacheKey, ImageListener listener,
+                       Request.Priority priority)
         {
             mBitmap = bitmap;
             mRequestUrl = requestUrl;
             mCacheKey = cacheKey;
             mListener = listener;
+            mPriority = priority;
+        }
+
+        /**
+         * Changes the priority this container wants for its in-flight request,
+         * e.g. lowering it while the image is off screen. A request shared by
+         * several containers runs at the highest of their priorities.
+         */
+        public void setPriority(@NonNull Request.Priority priority)
+        {
+            throwIfNotOnMainThread();
+
+            mPriority = priority;
+            if (mListener == null) {
+                return;
+            }
+            BatchedImageRequest request = getInFlightRequests().get(mCacheKey);
+            if (request != null) {
+                request.updatePriority();
+            }
+        }
+
+        /**
+         * Returns the priority this container wants for its request.
+         */
+        @NonNull
+        public Request.Priority getPriority()
+        {
+            return mPriority;
         }
 
         /**
@@ -472,6 +1079,23 @@ public class ImageLoader {
 
         void setBitmap(Bitmap mBitmap) {
             this.mBitmap = mBitmap;
+            this.mPreview = false;
+        }
+
+        void setPreview(Bitmap preview) {
+            this.mBitmap = preview;
+            this.mPreview = true;
+        }
+
+        /**
+         * Returns true if the bitmap is a low-resolution preview, to be
+         * followed by the full image.
+         *
+         * @see ImageLoader#setProgressiveLoading(boolean)
+         */
+        public boolean isPreview()
+        {
+            return mPreview;
         }
 
         /**
@@ -549,6 +1173,21 @@ public class ImageLoader {
         public void addContainer(ImageContainer container)
         {
             mContainers.add(container);
+            updatePriority();
+        }
+
+        /**
+         * Runs the request at the highest priority wanted by its containers.
+         */
+        public void updatePriority()
+        {
+            Request.Priority priority = Request.Priority.LOW;
+            for (ImageContainer container : mContainers) {
+                if (container.getPriority().compareTo(priority) > 0) {
+                    priority = container.getPriority();
+                }
+            }
+            mRequestQueue.changePriority(mRequest, priority);
         }
 
         /**
@@ -567,6 +1206,7 @@ public class ImageLoader {
                 mRequest.cancel();
                 return true;
             }
+            updatePriority();
             return false;
         }
 
@@ -583,6 +1223,178 @@ public class ImageLoader {
         }
     }
 
+    /**
+     * Looks an image up in the disk cache, first as the requested variant then
+     * as the original image, and sends its request to the network on a miss.
+     * Runs on the disk thread.
+     */
+    private class DiskLookup implements Runnable {
+
+        private final Cache mDiskCache;
+
+        private final Request<Bitmap> mRequest;
+
+        private final String mRequestUrl;
+
+        private final int mMaxWidth;
+
+        private final int mMaxHeight;
+
+        private final ScaleType mScaleType;
+
+        private final String mCacheKey;
+
+        DiskLookup(Cache diskCache, Request<Bitmap> request, String requestUrl, int maxWidth, int maxHeight,
+                   ScaleType scaleType, String cacheKey)
+        {
+            mDiskCache = diskCache;
+            mRequest = request;
+            mRequestUrl = requestUrl;
+            mMaxWidth = maxWidth;
+            mMaxHeight = maxHeight;
+            mScaleType = scaleType;
+            mCacheKey = cacheKey;
+        }
+
+        @Override
+        public void run()
+        {
+            if (mRequest.isCanceled()) {
+                return;
+            }
+
+            Bitmap bitmap = decode(mDiskCache.get(mCacheKey));
+            String originalKey = getCacheKey(mRequestUrl, 0, 0, ScaleType.CENTER_INSIDE);
+            if (bitmap == null && !originalKey.equals(mCacheKey)) {
+                Cache.Entry original = mDiskCache.get(originalKey);
+                bitmap = decode(original);
+                if (bitmap != null && (mMaxWidth != 0 || mMaxHeight != 0)) {
+                    putVariant(mDiskCache, mCacheKey, original, bitmap);
+                }
+            }
+
+            if (bitmap == null) {
+                mRequestQueue.add(mRequest);
+                return;
+            }
+
+            final Bitmap cachedBitmap = bitmap;
+            mHandler.post(new Runnable() {
+
+                @Override
+                public void run()
+                {
+                    onGetImageSuccess(mCacheKey, cachedBitmap);
+                }
+            });
+        }
+
+        /**
+         * Decodes a cached image to the requested size, or returns null if it
+         * is missing, expired or cannot be decoded.
+         */
+        private Bitmap decode(Cache.Entry entry)
+        {
+            if (entry == null || entry.isExpired()) {
+                return null;
+            }
+            // Decodes through a request that is never sent, to share its
+            // sizing, scheduling and pooling.
+            ImageRequest decoder = new ImageRequest(mRequestUrl, new Listener<Bitmap>() {
+
+                @Override
+                public void onResponse(Bitmap response)
+                {
+                    // do nothing...
+                }
+            }, mMaxWidth, mMaxHeight, mScaleType, DECODE_CONFIG, null);
+            Response<Bitmap> response = decoder.parseNetworkResponse(
+                            new NetworkResponse(entry.getSharedData(), entry.getResponseHeaders()));
+            return response != null && response.isSuccess() ? response.result : null;
+        }
+    }
+
+    /**
+     * Scales a variant held by the memory cache down to the requested size,
+     * then checks on the main thread that the variant was not evicted, and
+     * possibly reused as a decode target, while it was read. Falls back to the
+     * disk cache and network otherwise.
+     */
+    private class ResizeLookup implements Runnable {
+
+        private final Request<Bitmap> mRequest;
+
+        private final String mRequestUrl;
+
+        private final int mMaxWidth;
+
+        private final int mMaxHeight;
+
+        private final ScaleType mScaleType;
+
+        private final String mCacheKey;
+
+        private final String mSourceKey;
+
+        private final Bitmap mSource;
+
+        private final int mTargetWidth;
+
+        private final int mTargetHeight;
+
+        ResizeLookup(Request<Bitmap> request, String requestUrl, int maxWidth, int maxHeight, ScaleType scaleType,
+                     String cacheKey, String sourceKey, Bitmap source, int targetWidth, int targetHeight)
+        {
+            mRequest = request;
+            mRequestUrl = requestUrl;
+            mMaxWidth = maxWidth;
+            mMaxHeight = maxHeight;
+            mScaleType = scaleType;
+            mCacheKey = cacheKey;
+            mSourceKey = sourceKey;
+            mSource = source;
+            mTargetWidth = targetWidth;
+            mTargetHeight = targetHeight;
+        }
+
+        @Override
+        public void run()
+        {
+            if (mRequest.isCanceled()) {
+                return;
+            }
+            Bitmap scaled;
+            try {
+                // Always a new bitmap: a cached bitmap must not be shared by
+                // two keys, the pool reuses it once either is evicted.
+                if (mTargetWidth == mSource.getWidth() && mTargetHeight == mSource.getHeight()) {
+                    scaled = mSource.copy(mSource.getConfig(), false);
+                } else {
+                    scaled = Bitmap.createScaledBitmap(mSource, mTargetWidth, mTargetHeight, true);
+                }
+            } catch (RuntimeException | OutOfMemoryError e) {
+                // Recycled meanwhile, or no memory to spare.
+                scaled = null;
+            }
+            final Bitmap resized = scaled;
+            mHandler.post(new Runnable() {
+
+                @Override
+                public void run()
+                {
+                    if (mRequest.isCanceled()) {
+                        return;
+                    }
+                    if (resized != null && mCache.getBitmap(mSourceKey) == mSource) {
+                        onGetImageSuccess(mCacheKey, resized);
+                    } else {
+                        dispatch(mRequest, mRequestUrl, mMaxWidth, mMaxHeight, mScaleType, mCacheKey);
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Starts the runnable for batched delivery of responses if it is not
      * already started.
@@ -594,6 +1406,10 @@ public class ImageLoader {
      */
     private void batchResponse(String cacheKey, BatchedImageRequest request)
     {
+        long now = SystemClock.uptimeMillis();
+        boolean burst = now - mLastResponseTimeMs < FRAME_INTERVAL_MS;
+        mLastResponseTimeMs = now;
+
         mBatchedResponses.put(cacheKey, request);
         // If we don't already have a batch delivery runnable in flight, make a
         // new one.
@@ -605,6 +1421,8 @@ public class ImageLoader {
                 @Override
                 public void run()
                 {
+                    mBatchStats.onBatchDelivered(getBatchedResponses().size(),
+                                    SystemClock.uptimeMillis() - mBatchStartTimeMs, mBatchImmediate);
                     for (BatchedImageRequest bir : getBatchedResponses().values()) {
                         for (ImageContainer container : bir.getContainers()) {
                             // If one of the callers in the batched request
@@ -628,8 +1446,20 @@ public class ImageLoader {
                 }
 
             };
-            // Post the runnable.
-            mHandler.postDelayed(mRunnable, mBatchResponseDelayMs);
+            mBatchStartTimeMs = now;
+            mBatchImmediate = false;
+            if (!mAdaptiveBatching || mBatchResponseDelayMs <= 0) {
+                // Post the runnable.
+                mHandler.postDelayed(mRunnable, mBatchResponseDelayMs);
+            } else if (!burst && Looper.getMainLooper().getQueue().isIdle()) {
+                // Nothing else is going on: a lone response is not worth
+                // waiting for.
+                mBatchImmediate = true;
+                mHandler.post(mRunnable);
+            } else {
+                // Coalesce the burst, keyed to the frames.
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            }
         }
     }
 
@@ -640,6 +1470,9 @@ public class ImageLoader {
         }
     }
 
+    /** Prefix of the cache keys of images decoded at their original size. */
+    private static final String ORIGINAL_KEY_PREFIX = "#W0#H0#";
+
     /**
      * Creates a cache key for use with the L1 cache.
      * 
@@ -658,14 +1491,23 @@ public class ImageLoader {
                         .append("#S").append(scaleType.ordinal()).append(url).toString();
     }
 
-    HashMap<String, BatchedImageRequest> getInFlightRequests() {
+    ConcurrentHashMap<String, BatchedImageRequest> getInFlightRequests() {
         return mInFlightRequests;
     }
 
-    HashMap<String, BatchedImageRequest> getBatchedResponses() {
+    ConcurrentHashMap<String, BatchedImageRequest> getBatchedResponses() {
         return mBatchedResponses;
     }
 
+    /**
+     * Returns the number of distinct images being fetched; can be called from
+     * any thread.
+     */
+    public int getInFlightRequestCount()
+    {
+        return mInFlightRequests.size();
+    }
+
     void setRunnable(Runnable runnable) {
         this.mRunnable = runnable;
     }
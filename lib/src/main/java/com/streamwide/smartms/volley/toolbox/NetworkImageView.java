@@ -23,6 +23,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatImageView;
 
+import com.streamwide.smartms.volley.api.Request;
 import com.streamwide.smartms.volley.api.VolleyError;
 import com.streamwide.smartms.volley.toolbox.ImageLoader.ImageContainer;
 import com.streamwide.smartms.volley.toolbox.ImageLoader.ImageListener;
@@ -220,7 +221,7 @@ public class NetworkImageView extends AppCompatImageView {
                     setImageResource(getDefaultImageId());
                 }
             }
-        });
+        }, isShown() ? Request.Priority.NORMAL : Request.Priority.LOW);
 
         // update the ImageContainer to be the new bitmap container.
         mImageContainer = newContainer;
@@ -242,6 +243,16 @@ public class NetworkImageView extends AppCompatImageView {
         loadImageIfNecessary(true);
     }
 
+    @Override
+    public void onVisibilityAggregated(boolean isVisible)
+    {
+        super.onVisibilityAggregated(isVisible);
+        if (mImageContainer != null) {
+            // Images off screen should not hold back the visible ones.
+            mImageContainer.setPriority(isVisible ? Request.Priority.NORMAL : Request.Priority.LOW);
+        }
+    }
+
     @Override
     protected void onDetachedFromWindow()
     {
@@ -0,0 +1,65 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 11:48:05 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 11:48:05 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A variation of {@link BufferedInputStream} that takes its initial buffer
+ * from a pool of byte[] buffers and gives it back on {@link #close()}, saving
+ * on heap churn. Like its parent, it supports {@link #mark(int)} and
+ * {@link #reset()}, growing past the pooled buffer only when marked further
+ * than the buffer size.
+ */
+public class PoolingBufferedInputStream extends BufferedInputStream {
+
+    private final ByteArrayPool mPool;
+
+    /** The buffer taken from the pool, returned once on close. */
+    private byte[] mPooledBuf;
+
+    /**
+     * Constructs a new stream buffering the given one.
+     *
+     * @param size
+     *            minimum size of the buffer taken from the pool
+     */
+    public PoolingBufferedInputStream(@NonNull ByteArrayPool pool, @NonNull InputStream in, int size)
+    {
+        super(in, 1);
+        mPool = pool;
+        mPooledBuf = mPool.getBuf(size);
+        buf = mPooledBuf;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            super.close();
+        } finally {
+            synchronized (this) {
+                // The parent dropped its reference to the buffer on close.
+                mPool.returnBuf(mPooledBuf);
+                mPooledBuf = null;
+            }
+        }
+    }
+}
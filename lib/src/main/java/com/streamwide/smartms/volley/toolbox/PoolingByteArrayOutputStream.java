@@ -19,11 +19,20 @@ import androidx.annotation.NonNull;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A variation of {@link ByteArrayOutputStream} that uses a pool of
  * byte[] buffers instead
  * of always allocating them fresh, saving on heap churn.
+ * <p>
+ * Each instance is meant to be owned by a single thread: unlike its parent, it
+ * is not synchronized. The buffer goes back to the pool on {@link #close()},
+ * which must be called, preferably with try-with-resources: there is no
+ * finalizer to return it later.
  */
 public class PoolingByteArrayOutputStream extends ByteArrayOutputStream {
 
@@ -34,6 +43,9 @@ public class PoolingByteArrayOutputStream extends ByteArrayOutputStream {
      */
     private static final int DEFAULT_SIZE = 256;
 
+    /** Number of streams created and not closed yet, to detect leaks. */
+    private static final AtomicInteger sOpenCount = new AtomicInteger();
+
     private final ByteArrayPool mPool;
 
     /**
@@ -62,20 +74,44 @@ public class PoolingByteArrayOutputStream extends ByteArrayOutputStream {
     {
         mPool = pool;
         buf = mPool.getBuf(Math.max(size, DEFAULT_SIZE));
+        sOpenCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of streams created and not closed yet. Once all the
+     * streams in use are done, a non-zero count reveals leaked buffers.
+     */
+    public static int getOpenCount()
+    {
+        return sOpenCount.get();
     }
 
+    /**
+     * Returns the buffer to the pool. Closing the stream again has no effect;
+     * writing to or reading from a closed stream throws an
+     * {@link IllegalStateException}.
+     */
     @Override
     public void close() throws IOException
     {
+        if (buf == null) {
+            return;
+        }
         mPool.returnBuf(buf);
         buf = null;
+        sOpenCount.decrementAndGet();
         super.close();
     }
 
-    @Override
-    public void finalize()
+    /**
+     * Throws an {@link IllegalStateException} if the buffer went back to the
+     * pool.
+     */
+    private void ensureOpen()
     {
-        mPool.returnBuf(buf);
+        if (buf == null) {
+            throw new IllegalStateException("Stream closed");
+        }
     }
 
     /**
@@ -84,6 +120,7 @@ public class PoolingByteArrayOutputStream extends ByteArrayOutputStream {
      */
     private void expand(int i)
     {
+        ensureOpen();
         /* Can the buffer handle @i more bytes, if not expand it */
         if (count + i <= buf.length) {
             return;
@@ -95,16 +132,63 @@ public class PoolingByteArrayOutputStream extends ByteArrayOutputStream {
     }
 
     @Override
-    public synchronized void write(@NonNull byte[] buffer, int offset, int len)
+    public void write(@NonNull byte[] buffer, int offset, int len)
     {
+        if ((offset | len) < 0 || len > buffer.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
         expand(len);
-        super.write(buffer, offset, len);
+        System.arraycopy(buffer, offset, buf, count, len);
+        count += len;
     }
 
     @Override
-    public synchronized void write(int oneByte)
+    public void write(int oneByte)
     {
         expand(1);
-        super.write(oneByte);
+        buf[count++] = (byte) oneByte;
+    }
+
+    @Override
+    public void writeTo(@NonNull OutputStream out) throws IOException
+    {
+        ensureOpen();
+        out.write(buf, 0, count);
+    }
+
+    @Override
+    public void reset()
+    {
+        count = 0;
+    }
+
+    @Override
+    public int size()
+    {
+        return count;
+    }
+
+    @Override
+    @NonNull
+    public byte[] toByteArray()
+    {
+        ensureOpen();
+        return Arrays.copyOf(buf, count);
+    }
+
+    @Override
+    @NonNull
+    public String toString()
+    {
+        ensureOpen();
+        return super.toString();
+    }
+
+    @Override
+    @NonNull
+    public String toString(@NonNull String charsetName) throws UnsupportedEncodingException
+    {
+        ensureOpen();
+        return super.toString(charsetName);
     }
 }
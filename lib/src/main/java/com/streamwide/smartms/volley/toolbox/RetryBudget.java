@@ -0,0 +1,108 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 15:36:10 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 15:36:10 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget bounding the retries of all requests to a ratio of their first
+ * attempts. Each first attempt deposits the ratio into the budget, and each
+ * retry withdraws one; a minimum reserve lets a quiet client retry too. The
+ * balance never grows past that reserve, so that a quiet period does not
+ * save up a burst of retries for the start of an outage. When a server is
+ * down, requests thus stop multiplying the load by their number of
+ * attempts.
+ */
+public class RetryBudget {
+
+    /** The default ratio of retries to first attempts. */
+    public static final float DEFAULT_RETRY_RATIO = 0.2f;
+
+    /** The default number of retries allowed regardless of the ratio. */
+    public static final int DEFAULT_MIN_RETRIES = 10;
+
+    /** Fixed-point scale of the balance, to deposit fractions of a retry. */
+    private static final long SCALE = 1000;
+
+    private final long mDeposit;
+
+    private final long mMaxBalance;
+
+    /** The number of retries available, times SCALE. */
+    private final AtomicLong mBalance;
+
+    /**
+     * Creates a budget with the default ratio and reserve.
+     */
+    public RetryBudget()
+    {
+        this(DEFAULT_RETRY_RATIO, DEFAULT_MIN_RETRIES);
+    }
+
+    /**
+     * @param retryRatio
+     *            Retries allowed per first attempt, e.g. 0.2 for one retry
+     *            every five requests
+     * @param minRetries
+     *            Retries available at first, and at most at any time
+     */
+    public RetryBudget(float retryRatio, int minRetries)
+    {
+        mDeposit = (long) (retryRatio * SCALE);
+        mMaxBalance = Math.max(minRetries, 1) * SCALE;
+        mBalance = new AtomicLong(minRetries * SCALE);
+    }
+
+    /**
+     * Records the first attempt of a request.
+     */
+    public void onFirstAttempt()
+    {
+        long balance;
+        do {
+            balance = mBalance.get();
+            if (balance >= mMaxBalance) {
+                return;
+            }
+        } while (!mBalance.compareAndSet(balance, Math.min(mMaxBalance, balance + mDeposit)));
+    }
+
+    /**
+     * Withdraws a retry from the budget.
+     *
+     * @return true if a retry was available, false if the request must not be
+     *         retried
+     */
+    public boolean tryRetry()
+    {
+        long balance;
+        do {
+            balance = mBalance.get();
+            if (balance < SCALE) {
+                return false;
+            }
+        } while (!mBalance.compareAndSet(balance, balance - SCALE));
+        return true;
+    }
+
+    /**
+     * Returns the number of retries currently available.
+     */
+    public float getAvailableRetries()
+    {
+        return (float) mBalance.get() / SCALE;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ * 	StreamWIDE (Team on The Run)
+ *
+ * @createdBy  AndroidTeam on Mon, 19 Oct 2026 14:21:37 +0200
+ * @copyright  Copyright (c) 2026 StreamWIDE UK Ltd (Team on the Run)
+ * @email      support@teamontherun.com
+ *
+ * 	© Copyright 2026 StreamWIDE UK Ltd (Team on the Run). StreamWIDE is the copyright holder
+ * 	of all code contained in this file. Do not redistribute or
+ *  	re-use without permission.
+ *
+ * @lastModifiedOn Mon, 19 Oct 2026 14:21:37 +0200
+ */
+
+package com.streamwide.smartms.volley.toolbox;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An output stream writing into a list of fixed-size segments taken from a
+ * pool of byte[] buffers. Unlike {@link PoolingByteArrayOutputStream}, it
+ * never copies the bytes written so far to grow: the content is copied once,
+ * by {@link #toByteArray()}. Segments go back to the pool on {@link #close()},
+ * which must be called, preferably with try-with-resources: there is no
+ * finalizer to return them later.
+ * <p>
+ * Meant for a single thread, it is not synchronized.
+ */
+public class SegmentedByteArrayOutputStream extends OutputStream {
+
+    /** Default minimum size of the segments. */
+    static final int DEFAULT_SEGMENT_SIZE = 8 * 1024;
+
+    /** Number of streams created and not closed yet, to detect leaks. */
+    private static final AtomicInteger sOpenCount = new AtomicInteger();
+
+    private final ByteArrayPool mPool;
+
+    private final int mSegmentSize;
+
+    /** The segments, all full but the last one. */
+    private final List<byte[]> mSegments = new ArrayList<>();
+
+    /** The segment being written, or null if none or closed. */
+    private byte[] mSegment;
+
+    /** Number of bytes written to the current segment. */
+    private int mSegmentCount;
+
+    /** Number of bytes written to the previous segments. */
+    private int mCount;
+
+    private boolean mClosed;
+
+    /**
+     * Constructs a new stream with segments of the default size.
+     */
+    public SegmentedByteArrayOutputStream(@NonNull ByteArrayPool pool)
+    {
+        this(pool, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs a new stream.
+     *
+     * @param segmentSize
+     *            minimum size of the segments taken from the pool
+     */
+    public SegmentedByteArrayOutputStream(@NonNull ByteArrayPool pool, int segmentSize)
+    {
+        mPool = pool;
+        mSegmentSize = segmentSize;
+        sOpenCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of streams created and not closed yet. Once all the
+     * streams in use are done, a non-zero count reveals leaked segments.
+     */
+    public static int getOpenCount()
+    {
+        return sOpenCount.get();
+    }
+
+    /**
+     * Throws an {@link IllegalStateException} if the segments went back to
+     * the pool.
+     */
+    private void ensureOpen()
+    {
+        if (mClosed) {
+            throw new IllegalStateException("Stream closed");
+        }
+    }
+
+    /**
+     * Returns the current segment, moving to a new one if it is full.
+     */
+    private byte[] segment()
+    {
+        ensureOpen();
+        if (mSegment == null || mSegmentCount == mSegment.length) {
+            if (mSegment != null) {
+                mCount += mSegmentCount;
+            }
+            mSegment = mPool.getBuf(mSegmentSize);
+            mSegments.add(mSegment);
+            mSegmentCount = 0;
+        }
+        return mSegment;
+    }
+
+    @Override
+    public void write(int oneByte)
+    {
+        segment()[mSegmentCount++] = (byte) oneByte;
+    }
+
+    @Override
+    public void write(@NonNull byte[] buffer, int offset, int len)
+    {
+        while (len > 0) {
+            byte[] segment = segment();
+            int chunk = Math.min(len, segment.length - mSegmentCount);
+            System.arraycopy(buffer, offset, segment, mSegmentCount, chunk);
+            mSegmentCount += chunk;
+            offset += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Reads the given stream to its end straight into the segments, without
+     * an intermediate buffer.
+     *
+     * @return the number of bytes read
+     */
+    public int readFrom(@NonNull InputStream in) throws IOException
+    {
+        int total = 0;
+        while (true) {
+            byte[] segment = segment();
+            int count = in.read(segment, mSegmentCount, segment.length - mSegmentCount);
+            if (count == -1) {
+                return total;
+            }
+            mSegmentCount += count;
+            total += count;
+        }
+    }
+
+    /**
+     * Returns the number of bytes written.
+     */
+    public int size()
+    {
+        return mCount + mSegmentCount;
+    }
+
+    /**
+     * Returns the bytes written, assembled into a new array of their exact
+     * size.
+     */
+    @NonNull
+    public byte[] toByteArray()
+    {
+        ensureOpen();
+        byte[] data = new byte[size()];
+        int offset = 0;
+        for (byte[] segment : mSegments) {
+            int length = segment == mSegment ? mSegmentCount : segment.length;
+            System.arraycopy(segment, 0, data, offset, length);
+            offset += length;
+        }
+        return data;
+    }
+
+    /**
+     * Returns the segments to the pool. Closing the stream again has no
+     * effect; writing to or reading from a closed stream throws an
+     * {@link IllegalStateException}.
+     */
+    @Override
+    public void close()
+    {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        sOpenCount.decrementAndGet();
+        for (byte[] segment : mSegments) {
+            mPool.returnBuf(segment);
+        }
+        mSegments.clear();
+        mSegment = null;
+        mSegmentCount = 0;
+        mCount = 0;
+    }
+}
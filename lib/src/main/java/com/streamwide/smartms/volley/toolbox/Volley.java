@@ -48,12 +48,34 @@ public class Volley {
      */
     @NonNull
     public static RequestQueue newRequestQueue(@NonNull Context context, @Nullable HttpStack stack)
+    {
+        return newRequestQueue(context, stack, new ByteArrayPool(BasicNetwork.DEFAULT_POOL_SIZE));
+    }
+
+    /**
+     * Creates a default instance of the worker pool reading response bodies
+     * through the given buffer pool, and calls {@link RequestQueue#start()} on
+     * it.
+     *
+     * @param context
+     *            A {@link Context} to use for creating the cache dir.
+     * @param stack
+     *            An {@link HttpStack} to use for the network, or null for
+     *            default.
+     * @param pool
+     *            The buffer pool of the network, e.g. sized for the expected
+     *            responses or adaptive.
+     * @return A started {@link RequestQueue} instance.
+     */
+    @NonNull
+    public static RequestQueue newRequestQueue(@NonNull Context context, @Nullable HttpStack stack,
+                                               @NonNull ByteArrayPool pool)
     {
         if (stack == null) {
             stack = new HurlStack();
         }
 
-        Network network = new BasicNetwork(stack);
+        Network network = new BasicNetwork(pool, stack);
 
         RequestQueue queue = new RequestQueue(network);
         queue.start();
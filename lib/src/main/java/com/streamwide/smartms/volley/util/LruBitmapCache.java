@@ -15,15 +15,36 @@
 
 package com.streamwide.smartms.volley.util;
 
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.LruCache;
 
+import com.streamwide.smartms.volley.toolbox.BitmapPool;
 import com.streamwide.smartms.volley.toolbox.ImageLoader.ImageCache;
 
-public class LruBitmapCache extends LruCache<String, Bitmap> implements ImageCache {
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A memory cache of bitmaps bounded by the total allocation size of its
+ * bitmaps, in bytes. Register it with
+ * {@link android.content.Context#registerComponentCallbacks} so that it shrinks
+ * under memory pressure: its content is halved on moderate pressure and
+ * emptied on critical pressure.
+ */
+public class LruBitmapCache extends LruCache<String, Bitmap> implements ImageCache, ComponentCallbacks2 {
+
+    /** Pool receiving the evicted bitmaps, or null to let them be collected. */
+    private final BitmapPool mBitmapPool;
+
+    /**
+     * The bitmaps put through {@link #putBitmap(String, Bitmap)}, kept in step
+     * with the cache to look them up without touching the LRU order.
+     */
+    private final ConcurrentHashMap<String, Bitmap> mPeekMap = new ConcurrentHashMap<>();
 
     public static int getDefaultLruCacheSize()
     {
@@ -32,20 +53,121 @@ public class LruBitmapCache extends LruCache<String, Bitmap> implements ImageCac
         return maxMemory / 8;
     }
 
+    /**
+     * Returns the default cache size in bytes: an eighth of the maximum heap
+     * size.
+     */
+    public static int getDefaultLruCacheSizeBytes()
+    {
+        return (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a cache of the given size in bytes.
+     *
+     * @param maxSizeBytes
+     *            the maximum total allocation size of the cached bitmaps
+     * @param bitmapPool
+     *            the pool receiving the evicted bitmaps, or null for none.
+     *            Only use a pool if evicted bitmaps are no longer displayed:
+     *            their pixels will be overwritten.
+     */
+    @NonNull
+    public static LruBitmapCache withMaxSizeBytes(int maxSizeBytes, @Nullable BitmapPool bitmapPool)
+    {
+        return new LruBitmapCache(bitmapPool, maxSizeBytes);
+    }
+
     public LruBitmapCache()
     {
-        this(getDefaultLruCacheSize());
+        this(null, getDefaultLruCacheSizeBytes());
     }
 
+    /**
+     * @deprecated
+     *             Use {@link #withMaxSizeBytes(int, BitmapPool)}; the size is
+     *             converted to bytes.
+     */
+    @Deprecated
     public LruBitmapCache(int sizeInKiloBytes)
     {
-        super(sizeInKiloBytes);
+        this(sizeInKiloBytes, null);
     }
 
+    /**
+     * Creates a cache handing its evicted bitmaps over to the given pool, to be
+     * reused by later decodes. Only use a pool if evicted bitmaps are no longer
+     * displayed: their pixels will be overwritten.
+     *
+     * @param sizeInKiloBytes
+     *            the maximum size of the cache
+     * @param bitmapPool
+     *            the pool receiving the evicted bitmaps, or null for none
+     * @deprecated
+     *             Use {@link #withMaxSizeBytes(int, BitmapPool)}; the size is
+     *             converted to bytes.
+     */
+    @Deprecated
+    public LruBitmapCache(int sizeInKiloBytes, @Nullable BitmapPool bitmapPool)
+    {
+        this(bitmapPool, (int) Math.min(sizeInKiloBytes * 1024L, Integer.MAX_VALUE));
+    }
+
+    private LruBitmapCache(BitmapPool bitmapPool, int maxSizeBytes)
+    {
+        super(maxSizeBytes);
+        mBitmapPool = bitmapPool;
+    }
+
+    /**
+     * Returns the allocation size of the bitmap in bytes, so that small
+     * thumbnails are not rounded down to nothing.
+     */
     @Override
     protected int sizeOf(@NonNull String key, @NonNull Bitmap value)
     {
-        return value.getRowBytes() * value.getHeight() / 1024;
+        return value.getAllocationByteCount();
+    }
+
+    @Override
+    public void onTrimMemory(int level)
+    {
+        if (level >= TRIM_MEMORY_COMPLETE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            // Relative to the content: halving the limit frees nothing from
+            // a cache not yet half full.
+            trimToSize(size() / 2);
+        }
+        if (mBitmapPool != null) {
+            // Evicted bitmaps only went to the pool: free them there.
+            mBitmapPool.onTrimMemory(level);
+        }
+    }
+
+    @Override
+    public void onLowMemory()
+    {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig)
+    {
+        // do nothing...
+    }
+
+    @Override
+    protected void entryRemoved(boolean evicted, @NonNull String key, @NonNull Bitmap oldValue,
+                                @Nullable Bitmap newValue)
+    {
+        if (newValue == null) {
+            // A replacing bitmap is already in the map.
+            mPeekMap.remove(key, oldValue);
+        }
+        if (evicted && mBitmapPool != null) {
+            mBitmapPool.put(oldValue);
+        }
     }
 
     @Override
@@ -55,9 +177,22 @@ public class LruBitmapCache extends LruCache<String, Bitmap> implements ImageCac
         return get(url);
     }
 
+    /**
+     * Looks the bitmap up without touching the order of the entries. Only
+     * finds the bitmaps put through {@link #putBitmap(String, Bitmap)}.
+     */
+    @Override
+    @Nullable
+    public Bitmap peekBitmap(@NonNull String url)
+    {
+        return mPeekMap.get(url);
+    }
+
     @Override
     public void putBitmap(@NonNull String url, @NonNull Bitmap bitmap)
     {
+        // Before the cache, which may evict it at once.
+        mPeekMap.put(url, bitmap);
         put(url, bitmap);
     }
 }
@@ -0,0 +1,56 @@
+package com.streamwide.smartms.volley.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks the delta-seconds form of {@link HttpHeaderParser#parseRetryAfterMs(Map)}.
+ */
+public class HttpHeaderParserTest {
+
+    private static Map<String, String> retryAfter(String value)
+    {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", value);
+        return headers;
+    }
+
+    @Test
+    public void parsesSeconds()
+    {
+        assertEquals(120000, HttpHeaderParser.parseRetryAfterMs(retryAfter(" 120 ")));
+    }
+
+    @Test
+    public void returnsMinusOneWithoutHeader()
+    {
+        assertEquals(-1, HttpHeaderParser.parseRetryAfterMs(Collections.<String, String> emptyMap()));
+    }
+
+    @Test
+    public void clampsNegativeSecondsToZero()
+    {
+        assertEquals(0, HttpHeaderParser.parseRetryAfterMs(retryAfter("-5")));
+    }
+
+    @Test
+    public void doesNotOverflowHugeSeconds()
+    {
+        // Long.MAX_VALUE / 100 seconds: times 1000, this used to overflow.
+        long delayMs = HttpHeaderParser.parseRetryAfterMs(retryAfter("92233720368547758"));
+        assertTrue(delayMs > 60 * 1000);
+    }
+
+    @Test
+    public void doesNotOverflowSecondsPastLong()
+    {
+        long delayMs = HttpHeaderParser.parseRetryAfterMs(retryAfter("99999999999999999999999999"));
+        assertTrue(delayMs > 60 * 1000);
+    }
+}
@@ -0,0 +1,117 @@
+package com.streamwide.smartms.volley.toolbox;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Checks that {@link PoolingByteArrayOutputStream} gives its buffer back to
+ * the pool exactly once, however the stream is used.
+ */
+public class PoolingByteArrayOutputStreamTest {
+
+    private static final int POOL_SIZE = 64 * 1024;
+
+    private ByteArrayPool mPool;
+
+    private int mOpenCount;
+
+    private int mPooledBytes;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        mPool = new ByteArrayPool(POOL_SIZE);
+        // Fill the pool with the buffers the tests take, so that it returns
+        // to the same size once they are given back.
+        writeAndClose(new byte[1024]);
+        mOpenCount = PoolingByteArrayOutputStream.getOpenCount();
+        mPooledBytes = mPool.getCurrentSizeBytes();
+    }
+
+    private void writeAndClose(byte[] data) throws IOException
+    {
+        try (PoolingByteArrayOutputStream out = new PoolingByteArrayOutputStream(mPool)) {
+            out.write(data, 0, data.length);
+        }
+    }
+
+    private void assertBaseline()
+    {
+        assertEquals(mOpenCount, PoolingByteArrayOutputStream.getOpenCount());
+        assertEquals(mPooledBytes, mPool.getCurrentSizeBytes());
+    }
+
+    @Test
+    public void returnsBufferAfterWrite() throws IOException
+    {
+        byte[] data = new byte[1024];
+        data[1023] = 42;
+        try (PoolingByteArrayOutputStream out = new PoolingByteArrayOutputStream(mPool)) {
+            out.write(data, 0, data.length);
+            assertEquals(mOpenCount + 1, PoolingByteArrayOutputStream.getOpenCount());
+            assertArrayEquals(data, out.toByteArray());
+        }
+        assertBaseline();
+    }
+
+    @Test
+    public void returnsBufferAfterFailedWrite() throws IOException
+    {
+        try (PoolingByteArrayOutputStream out = new PoolingByteArrayOutputStream(mPool)) {
+            out.write(new byte[1024], 0, 2048);
+            fail("Write past the end of the source");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        assertBaseline();
+    }
+
+    @Test
+    public void returnsBufferOnceWhenClosedTwice() throws IOException
+    {
+        PoolingByteArrayOutputStream out = new PoolingByteArrayOutputStream(mPool);
+        out.write(new byte[1024], 0, 1024);
+        out.close();
+        out.close();
+        assertBaseline();
+    }
+
+    @Test
+    public void rejectsUseAfterClose() throws IOException
+    {
+        PoolingByteArrayOutputStream out = new PoolingByteArrayOutputStream(mPool);
+        out.close();
+        try {
+            out.write(0);
+            fail("write");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            out.toByteArray();
+            fail("toByteArray");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            out.writeTo(new ByteArrayOutputStream());
+            fail("writeTo");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            out.toString();
+            fail("toString");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertBaseline();
+    }
+}
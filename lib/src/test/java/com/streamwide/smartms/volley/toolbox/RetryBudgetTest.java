@@ -0,0 +1,52 @@
+package com.streamwide.smartms.volley.toolbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link RetryBudget} bounds retries to its ratio and never saves
+ * up more than its reserve.
+ */
+public class RetryBudgetTest {
+
+    @Test
+    public void allowsReserveAtFirst()
+    {
+        RetryBudget budget = new RetryBudget(0.2f, 3);
+        assertTrue(budget.tryRetry());
+        assertTrue(budget.tryRetry());
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+    }
+
+    @Test
+    public void refillsFromFirstAttempts()
+    {
+        RetryBudget budget = new RetryBudget(0.2f, 1);
+        assertTrue(budget.tryRetry());
+        for (int i = 0; i < 4; i++) {
+            budget.onFirstAttempt();
+        }
+        assertFalse(budget.tryRetry());
+        budget.onFirstAttempt();
+        assertTrue(budget.tryRetry());
+    }
+
+    @Test
+    public void savesNoMoreThanReserveWhileQuiet()
+    {
+        RetryBudget budget = new RetryBudget(0.2f, 10);
+        for (int i = 0; i < 10000; i++) {
+            budget.onFirstAttempt();
+        }
+        assertEquals(10f, budget.getAvailableRetries(), 0.001f);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(budget.tryRetry());
+        }
+        // The outage starts: no burst beyond the reserve.
+        assertFalse(budget.tryRetry());
+    }
+}
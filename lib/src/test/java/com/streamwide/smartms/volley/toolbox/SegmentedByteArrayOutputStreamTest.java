@@ -0,0 +1,127 @@
+package com.streamwide.smartms.volley.toolbox;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Checks that {@link SegmentedByteArrayOutputStream} gives its segments back
+ * to the pool exactly once, however the read ends.
+ */
+public class SegmentedByteArrayOutputStreamTest {
+
+    private static final int POOL_SIZE = 64 * 1024;
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    /** Spans several segments, the last one partly filled. */
+    private static final int BODY_SIZE = 3 * SEGMENT_SIZE + 100;
+
+    private ByteArrayPool mPool;
+
+    private int mOpenCount;
+
+    private int mPooledBytes;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        mPool = new ByteArrayPool(POOL_SIZE);
+        // Fill the pool with the segments the tests take, so that it returns
+        // to the same size once they are given back.
+        try (SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream(mPool, SEGMENT_SIZE)) {
+            out.readFrom(new ByteArrayInputStream(newBody()));
+        }
+        mOpenCount = SegmentedByteArrayOutputStream.getOpenCount();
+        mPooledBytes = mPool.getCurrentSizeBytes();
+    }
+
+    private static byte[] newBody()
+    {
+        byte[] body = new byte[BODY_SIZE];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        return body;
+    }
+
+    private void assertBaseline()
+    {
+        assertEquals(mOpenCount, SegmentedByteArrayOutputStream.getOpenCount());
+        assertEquals(mPooledBytes, mPool.getCurrentSizeBytes());
+    }
+
+    @Test
+    public void returnsSegmentsAfterRead() throws IOException
+    {
+        byte[] body = newBody();
+        try (SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream(mPool, SEGMENT_SIZE)) {
+            assertEquals(BODY_SIZE, out.readFrom(new ByteArrayInputStream(body)));
+            assertEquals(mOpenCount + 1, SegmentedByteArrayOutputStream.getOpenCount());
+            assertArrayEquals(body, out.toByteArray());
+        }
+        assertBaseline();
+    }
+
+    @Test
+    public void returnsSegmentsAfterFailedRead()
+    {
+        // Fails once a few segments were filled.
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(newBody())) {
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                if (available() < SEGMENT_SIZE) {
+                    throw new IOException("Connection reset");
+                }
+                return super.read(b, off, len);
+            }
+        };
+        try (SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream(mPool, SEGMENT_SIZE)) {
+            out.readFrom(in);
+            fail("Read past the failure");
+        } catch (IOException e) {
+            // expected
+        }
+        assertBaseline();
+    }
+
+    @Test
+    public void returnsSegmentsOnceWhenClosedTwice() throws IOException
+    {
+        SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream(mPool, SEGMENT_SIZE);
+        out.readFrom(new ByteArrayInputStream(newBody()));
+        out.close();
+        out.close();
+        assertBaseline();
+    }
+
+    @Test
+    public void rejectsUseAfterClose()
+    {
+        SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream(mPool, SEGMENT_SIZE);
+        out.close();
+        try {
+            out.write(0);
+            fail("write");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            out.toByteArray();
+            fail("toByteArray");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertBaseline();
+    }
+}